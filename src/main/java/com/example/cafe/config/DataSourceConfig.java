@@ -0,0 +1,91 @@
+package com.example.cafe.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The primary pool from {@code spring.datasource}, plus read replicas when
+ * {@code database.replicas.urls} lists any. Replicas share the primary's credentials and driver.
+ */
+@Configuration
+public class DataSourceConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(DataSourceConfig.class);
+
+    private final List<String> replicaUrls;
+
+    public DataSourceConfig(@Value("${database.replicas.urls:}") List<String> replicaUrls) {
+        this.replicaUrls = replicaUrls.stream().map(String::trim).filter(url -> !url.isEmpty()).toList();
+    }
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource,
+                                 DataSourceProperties properties,
+                                 @Value("${database.replicas.pool-size:10}") int replicaPoolSize,
+                                 @Value("${database.replicas.read-your-writes:5s}") Duration readYourWrites,
+                                 @Value("${database.replicas.retry-after:30s}") Duration retryAfter,
+                                 @Value("${database.replicas.max-tracked-writers:100000}") long maxTrackedWriters,
+                                 MeterRegistry meterRegistry) {
+        if (replicaUrls.isEmpty()) {
+            return primaryDataSource;
+        }
+
+        List<DataSource> replicas = new ArrayList<>();
+        for (int i = 0; i < replicaUrls.size(); i++) {
+            HikariDataSource replica = properties.initializeDataSourceBuilder()
+                    .type(HikariDataSource.class)
+                    .url(replicaUrls.get(i))
+                    .build();
+            replica.setPoolName("replica-" + (i + 1));
+            replica.setMaximumPoolSize(replicaPoolSize);
+            replica.setReadOnly(true);
+            // A replica that is down must not stop the application from starting.
+            replica.setInitializationFailTimeout(-1);
+            replica.setMetricRegistry(meterRegistry);
+            replicas.add(replica);
+        }
+        logger.info("Читання з {} реплік БД", replicas.size());
+
+        return new LazyConnectionDataSourceProxy(new ReplicaRoutingDataSource(
+                primaryDataSource, replicas, readYourWrites, retryAfter, maxTrackedWriters, meterRegistry));
+    }
+
+    /**
+     * Hibernate holds on to a connection for the whole session by default, which with open-in-view is
+     * the whole request; a read followed by a write would then write through the replica connection.
+     * Releasing after each transaction gives every transaction its own routing decision.
+     */
+    @Bean
+    public HibernatePropertiesCustomizer replicaConnectionHandling() {
+        return properties -> {
+            if (!replicaUrls.isEmpty()) {
+                properties.put(AvailableSettings.CONNECTION_HANDLING,
+                        PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+            }
+        };
+    }
+}
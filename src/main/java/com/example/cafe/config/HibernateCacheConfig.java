@@ -0,0 +1,80 @@
+package com.example.cafe.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.JCacheMetrics;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.jcache.MissingCacheStrategy;
+import org.hibernate.cfg.AvailableSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.spi.CachingProvider;
+import java.net.URI;
+import java.util.OptionalLong;
+import java.util.UUID;
+
+/**
+ * Hibernate's second-level and query cache, kept in Caffeine through JCache. The caches are local to
+ * this instance: a write made on another instance reaches it only when the region's TTL runs out, so
+ * the TTLs in {@code hibernate-cache.regions} bound how stale a cached cafe, menu item or user can be.
+ * Every region Hibernate asks for must be listed there; an unlisted one fails instead of being created
+ * without bounds. Each region keeps JCache statistics, published as {@code cache.*} meters, so hit
+ * rates are visible without Hibernate's session-wide {@code generate_statistics}.
+ */
+@Configuration
+@EnableConfigurationProperties(HibernateCacheProperties.class)
+public class HibernateCacheConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(HibernateCacheConfig.class);
+
+    /**
+     * A manager of its own rather than the provider's default one, so two application contexts in one
+     * JVM never see each other's entries.
+     */
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateCacheManager(HibernateCacheProperties properties) {
+        CachingProvider provider = Caching.getCachingProvider(CaffeineCachingProvider.class.getName());
+        CacheManager cacheManager = provider.getCacheManager(
+                URI.create("hibernate:" + UUID.randomUUID()), getClass().getClassLoader());
+        properties.regions().forEach((name, region) -> {
+            CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+            // Hibernate already stores disassembled state; copying it on every get and put buys nothing.
+            configuration.setStoreByValue(false);
+            configuration.setStatisticsEnabled(true);
+            if (region.maxSize() != null) {
+                configuration.setMaximumSize(OptionalLong.of(region.maxSize()));
+            }
+            if (region.ttl() != null) {
+                configuration.setExpireAfterWrite(OptionalLong.of(region.ttl().toNanos()));
+            }
+            cacheManager.createCache(name, configuration);
+        });
+        logger.info("Кеш другого рівня Hibernate: {} регіонів", properties.regions().size());
+        return cacheManager;
+    }
+
+    @Bean
+    public MeterBinder hibernateCacheMetrics(CacheManager hibernateCacheManager, HibernateCacheProperties properties) {
+        return registry -> properties.regions().keySet()
+                .forEach(name -> JCacheMetrics.monitor(registry, hibernateCacheManager.getCache(name)));
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCache(CacheManager hibernateCacheManager) {
+        return properties -> {
+            properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+            properties.put(AvailableSettings.USE_QUERY_CACHE, true);
+            properties.put(AvailableSettings.CACHE_REGION_FACTORY, ConfigSettings.SIMPLE_FACTORY_NAME);
+            properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+            properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, MissingCacheStrategy.FAIL.getExternalRepresentation());
+        };
+    }
+}
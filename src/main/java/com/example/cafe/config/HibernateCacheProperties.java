@@ -0,0 +1,21 @@
+package com.example.cafe.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Size and TTL of every Hibernate cache region, by region name. A region without a size or TTL is
+ * unbounded in that respect.
+ */
+@ConfigurationProperties("hibernate-cache")
+public record HibernateCacheProperties(Map<String, Region> regions) {
+
+    public HibernateCacheProperties {
+        regions = regions == null ? Map.of() : Map.copyOf(regions);
+    }
+
+    public record Region(Long maxSize, Duration ttl) {
+    }
+}
@@ -0,0 +1,169 @@
+package com.example.cafe.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Sends read-only transactions to the replicas (round robin) and everything else to the primary.
+ * A replica that fails to hand out a connection is skipped for {@code retryAfter}; when no replica is
+ * left the read goes to the primary. For {@code readYourWrites} after a user's write transaction, that
+ * user's reads stay on the primary so they do not miss their own changes because of replication lag.
+ * That memory is per instance; a request that {@link com.example.cafe.filter.ReadYourWritesFilter}
+ * marks with {@link #RECENT_WRITE_ATTRIBUTE}, because the client wrote recently through any instance,
+ * reads from the primary as well. Reads inside {@link #readFromPrimary} stay on the primary too.
+ *
+ * <p>The routing decision uses the transaction state, so the data source has to be wrapped in a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}: the physical connection
+ * is then only fetched once the transaction has started.
+ */
+public class ReplicaRoutingDataSource extends AbstractDataSource {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    /** Request attribute set when the client's last write may not have reached the replicas yet. */
+    public static final String RECENT_WRITE_ATTRIBUTE = ReplicaRoutingDataSource.class.getName() + ".RECENT_WRITE";
+
+    private static final ThreadLocal<Boolean> primaryReads = new ThreadLocal<>();
+
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final long retryAfterNanos;
+    private final Cache<String, Boolean> recentWriters;
+    private final MeterRegistry meterRegistry;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas, Duration readYourWrites,
+                                    Duration retryAfter, long maxTrackedWriters, MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.replicas = new ArrayList<>();
+        for (int i = 0; i < replicas.size(); i++) {
+            this.replicas.add(new Replica("replica-" + (i + 1), replicas.get(i)));
+        }
+        this.retryAfterNanos = retryAfter.toNanos();
+        this.recentWriters = Caffeine.newBuilder()
+                .maximumSize(maxTrackedWriters)
+                .expireAfterWrite(readYourWrites)
+                .build();
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Runs {@code action} with its read-only transactions on the primary as well. For reads whose
+     * result outlives the request, such as cache fills: a lagging replica would otherwise have the
+     * stale data kept long after replication caught up.
+     */
+    public static <T> T readFromPrimary(Supplier<T> action) {
+        if (primaryReads.get() != null) {
+            return action.get();
+        }
+        primaryReads.set(Boolean.TRUE);
+        try {
+            return action.get();
+        } finally {
+            primaryReads.remove();
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return route(DataSource::getConnection);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return route(dataSource -> dataSource.getConnection(username, password));
+    }
+
+    private Connection route(Connector connector) throws SQLException {
+        String username = currentUsername();
+
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (username != null && TransactionSynchronizationManager.isActualTransactionActive()) {
+                recentWriters.put(username, Boolean.TRUE);
+            }
+            return primary("write", connector);
+        }
+
+        if (primaryReads.get() != null) {
+            return primary("pinned", connector);
+        }
+
+        if ((username != null && recentWriters.getIfPresent(username) != null) || clientWroteRecently()) {
+            return primary("read_your_writes", connector);
+        }
+
+        for (int attempt = 0; attempt < replicas.size(); attempt++) {
+            Replica replica = replicas.get(Math.floorMod(nextReplica.getAndIncrement(), replicas.size()));
+            long now = System.nanoTime();
+            if (now - replica.downUntil < 0) {
+                continue;
+            }
+            try {
+                Connection connection = connector.connect(replica.dataSource);
+                count(replica.name, "read");
+                return connection;
+            } catch (SQLException e) {
+                replica.downUntil = now + retryAfterNanos;
+                meterRegistry.counter("datasource.replica.failures", "replica", replica.name).increment();
+                logger.warn("Репліка {} недоступна, читання переведено на основну БД: {}", replica.name, e.getMessage());
+            }
+        }
+        return primary(replicas.isEmpty() ? "no_replica" : "replica_unavailable", connector);
+    }
+
+    private Connection primary(String reason, Connector connector) throws SQLException {
+        count("primary", reason);
+        return connector.connect(primary);
+    }
+
+    private void count(String target, String reason) {
+        meterRegistry.counter("datasource.routing", "target", target, "reason", reason).increment();
+    }
+
+    private static String currentUsername() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null && authentication.isAuthenticated()
+                && !(authentication instanceof AnonymousAuthenticationToken) ? authentication.getName() : null;
+    }
+
+    private static boolean clientWroteRecently() {
+        RequestAttributes request = RequestContextHolder.getRequestAttributes();
+        return request != null
+                && request.getAttribute(RECENT_WRITE_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST) != null;
+    }
+
+    @FunctionalInterface
+    private interface Connector {
+        Connection connect(DataSource dataSource) throws SQLException;
+    }
+
+    private static final class Replica {
+        private final String name;
+        private final DataSource dataSource;
+        private volatile long downUntil = System.nanoTime();
+
+        private Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+    }
+}
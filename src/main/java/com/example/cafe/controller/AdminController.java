@@ -1,25 +1,52 @@
 package com.example.cafe.controller;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.WebAsyncTask;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.http.HttpStatus;
+import com.example.cafe.dto.AdminCafeSummary;
+import com.example.cafe.dto.AdminOrderRow;
+import com.example.cafe.dto.AdminUserRow;
+import com.example.cafe.dto.MenuVersion;
+import com.example.cafe.dto.TablePage;
+import com.example.cafe.dto.TableRequest;
 import com.example.cafe.model.Cafe;
-import com.example.cafe.model.Order;
 import com.example.cafe.model.User;
 import com.example.cafe.model.MenuItem;
 import com.example.cafe.repository.CafeRepository;
 import com.example.cafe.repository.MenuItemRepository;
-import com.example.cafe.repository.OrderRepository;
 import com.example.cafe.repository.UserRepository;
+import com.example.cafe.security.UserSecurityVersions;
+import com.example.cafe.service.AdminTableService;
+import com.example.cafe.service.CafeService;
+import com.example.cafe.service.MenuCache;
+import com.example.cafe.service.MenuCatalog;
+import com.example.cafe.service.RenderedMenu;
+import com.example.cafe.service.OrderExportService;
+import com.example.cafe.service.RefreshTokenService;
+import com.example.cafe.service.UserDetailsServiceImpl;
+import com.example.cafe.service.UsernameIndex;
+import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.SQLException;
+import java.time.LocalDate;
 import java.util.Optional;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/admin")
@@ -28,59 +55,176 @@ public class AdminController {
 
     private static final Logger logger = LoggerFactory.getLogger(AdminController.class);
 
+    private static final int EXPORT_BUFFER_SIZE = 64 * 1024;
+
     private final UserRepository userRepository;
     private final CafeRepository cafeRepository;
-    private final OrderRepository orderRepository;
     private final MenuItemRepository menuItemRepository;
+    private final UserSecurityVersions userSecurityVersions;
+    private final UserDetailsServiceImpl userDetailsService;
+    private final RefreshTokenService refreshTokenService;
+    private final UsernameIndex usernameIndex;
+    private final CafeService cafeService;
+    private final AdminTableService adminTableService;
+    private final OrderExportService orderExportService;
+    private final MenuCache menuCache;
+    private final MenuCatalog menuCatalog;
 
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Value("${export.orders.retry-after-seconds:30}")
+    private long exportRetryAfterSeconds;
+
     @Autowired
     public AdminController(UserRepository userRepository,
                            CafeRepository cafeRepository,
-                           OrderRepository orderRepository, MenuItemRepository menuItemRepository) {
+                           MenuItemRepository menuItemRepository,
+                           UserSecurityVersions userSecurityVersions,
+                           UserDetailsServiceImpl userDetailsService,
+                           RefreshTokenService refreshTokenService,
+                           UsernameIndex usernameIndex,
+                           CafeService cafeService,
+                           AdminTableService adminTableService,
+                           OrderExportService orderExportService,
+                           MenuCache menuCache,
+                           MenuCatalog menuCatalog) {
         this.userRepository = userRepository;
         this.cafeRepository = cafeRepository;
-        this.orderRepository = orderRepository;
         this.menuItemRepository = menuItemRepository;
+        this.userSecurityVersions = userSecurityVersions;
+        this.userDetailsService = userDetailsService;
+        this.refreshTokenService = refreshTokenService;
+        this.usernameIndex = usernameIndex;
+        this.cafeService = cafeService;
+        this.adminTableService = adminTableService;
+        this.orderExportService = orderExportService;
+        this.menuCache = menuCache;
+        this.menuCatalog = menuCatalog;
     }
 
     @GetMapping("/users")
-    public ResponseEntity<List<User>> getAllUsers() {
-        logger.info("Отримання списку всіх користувачів");
-        List<User> users = userRepository.findAll();
-        logger.debug("Знайдено {} користувачів", users.size());
-        return ResponseEntity.ok(users);
+    public ResponseEntity<?> getAllUsers(TableRequest request,
+                                         @RequestParam(required = false) String role) {
+        logger.info("Отримання сторінки користувачів (сортування={}, роль={})", request.sort(), role);
+        try {
+            TablePage<AdminUserRow> page = adminTableService.users(request, role);
+            logger.debug("Знайдено {} користувачів на сторінці", page.rows().size());
+            return ResponseEntity.ok(page);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Некоректний запит сторінки користувачів: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
     }
 
     @GetMapping("/cafes")
-    public ResponseEntity<List<Cafe>> getAllCafes() {
-        logger.info("Отримання списку всіх кафе");
-        List<Cafe> cafes = cafeRepository.findAll();
-        logger.debug("Знайдено {} кафе", cafes.size());
-        return ResponseEntity.ok(cafes);
+    public ResponseEntity<?> getAllCafes(TableRequest request,
+                                         @RequestParam(required = false) String city) {
+        logger.info("Отримання сторінки кафе (сортування={}, місто={})", request.sort(), city);
+        try {
+            TablePage<AdminCafeSummary> page = adminTableService.cafes(request, city);
+            logger.debug("Знайдено {} кафе на сторінці", page.rows().size());
+            return ResponseEntity.ok(page);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Некоректний запит сторінки кафе: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
     }
 
     @GetMapping("/orders")
-    public ResponseEntity<List<Order>> getAllOrders() {
-        logger.info("Отримання списку всіх замовлень");
-        List<Order> orders = orderRepository.findAll();
-        logger.debug("Знайдено {} замовлень", orders.size());
-        return ResponseEntity.ok(orders);
+    public ResponseEntity<?> getAllOrders(TableRequest request,
+                                          @RequestParam(required = false) Long cafeId,
+                                          @RequestParam(required = false) Double minTotal,
+                                          @RequestParam(required = false) Double maxTotal) {
+        logger.info("Отримання сторінки замовлень (сортування={}, кафе ID={})", request.sort(), cafeId);
+        try {
+            TablePage<AdminOrderRow> page = adminTableService.orders(request, cafeId, minTotal, maxTotal);
+            logger.debug("Знайдено {} замовлень на сторінці", page.rows().size());
+            return ResponseEntity.ok(page);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Некоректний запит сторінки замовлень: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/orders/export")
+    public WebAsyncTask<ResponseEntity<?>> exportOrders(
+            @RequestParam(required = false) String format,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) Long cafeId,
+            @RequestParam(defaultValue = "false") boolean gzip,
+            HttpServletResponse response) {
+        logger.info("Експорт замовлень (формат={}, з={}, по={}, кафе ID={}, gzip={})", format, from, to, cafeId, gzip);
+
+        OrderExportService.Format exportFormat = OrderExportService.Format.parse(format);
+        if (exportFormat == null) {
+            logger.warn("Невідомий формат експорту: {}", format);
+            return new WebAsyncTask<>(() -> ResponseEntity.badRequest().body("Формат експорту має бути csv або ndjson"));
+        }
+        if (from != null && to != null && from.isAfter(to)) {
+            return new WebAsyncTask<>(() -> ResponseEntity.badRequest().body("Дата 'from' пізніша за 'to'"));
+        }
+
+        String fileName = "orders." + exportFormat.getExtension() + (gzip ? ".gz" : "");
+        WebAsyncTask<ResponseEntity<?>> task;
+        try {
+            task = orderExportService.submit(() -> writeExport(exportFormat, from, to, cafeId, gzip, fileName, response));
+        } catch (RejectedExecutionException e) {
+            logger.warn("Черга експорту заповнена, запит відхилено");
+            return new WebAsyncTask<>(() -> ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(exportRetryAfterSeconds))
+                    .body("Забагато експортів одночасно, спробуйте пізніше"));
+        }
+        response.setContentType(gzip ? "application/gzip" : exportFormat.getContentType());
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"");
+        return task;
+    }
+
+    /**
+     * Streams the export into the response and returns {@code null} once it is complete. A failure
+     * before anything reached the client becomes a 500; after that the failure is rethrown, so the
+     * connection is dropped and the client sees an incomplete download rather than a file that merely
+     * looks short. The gzip trailer is only written on success for the same reason.
+     */
+    private ResponseEntity<?> writeExport(OrderExportService.Format format, LocalDate from, LocalDate to, Long cafeId,
+                                          boolean gzip, String fileName, HttpServletResponse response) throws Exception {
+        long rows;
+        try {
+            OutputStream body = response.getOutputStream();
+            if (gzip) {
+                GZIPOutputStream out = new GZIPOutputStream(body, EXPORT_BUFFER_SIZE);
+                rows = orderExportService.copyOut(format, from, to, cafeId, out);
+                out.finish();
+            } else {
+                rows = orderExportService.copyOut(format, from, to, cafeId, body);
+            }
+            body.flush();
+        } catch (SQLException | IOException e) {
+            logger.error("Експорт {} перервано", fileName, e);
+            if (response.isCommitted()) {
+                throw e;
+            }
+            response.reset();
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Не вдалося експортувати замовлення");
+        }
+        logger.info("Експортовано {} замовлень у {}", rows, fileName);
+        return null;
     }
 
     @GetMapping("/cafes/{id}/menu")
-    public ResponseEntity<List<MenuItem>> getMenuItemsByCafe(@PathVariable Long id) {
+    public ResponseEntity<byte[]> getMenuItemsByCafe(@PathVariable Long id, WebRequest request) {
         logger.info("Отримання меню для кафе id={}", id);
-        if (!cafeRepository.existsById(id)) {
-            logger.warn("Кафе з id={} не знайдено", id);
-            return ResponseEntity.notFound().build();
-        }
         try {
-            List<MenuItem> items = menuItemRepository.findByCafeId(id);
-            logger.debug("Знайдено {} пунктів меню для кафе id={}", items.size(), id);
-            return ResponseEntity.ok(items);
+            MenuVersion version = cafeRepository.findMenuVersion(id).orElse(null);
+            RenderedMenu menu = version != null ? menuCache.menuOf(version) : null;
+            if (menu == null) {
+                logger.warn("Кафе з id={} не знайдено", id);
+                return ResponseEntity.notFound().build();
+            }
+            logger.debug("Знайдено {} пунктів меню для кафе id={}", menu.size(), id);
+            return menu.toResponse(request);
         } catch (Exception e) {
             logger.error("Помилка при отриманні меню для кафе id={}: {}", id, e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
@@ -91,7 +235,11 @@ public class AdminController {
     public ResponseEntity<?> createUser(@RequestBody User user) {
         logger.info("Спроба створення користувача з username={}", user.getUsername());
 
-        if (userRepository.findByUsername(user.getUsername()).isPresent()) {
+        if (user.getUsername() == null || user.getPassword() == null) {
+            return ResponseEntity.badRequest().body("Потрібні ім'я користувача та пароль");
+        }
+
+        if (usernameIndex.mightExist(user.getUsername()) && userRepository.existsByUsername(user.getUsername())) {
             logger.warn("Користувач з username={} вже існує", user.getUsername());
             return ResponseEntity.badRequest().body("Ім'я користувача вже існує");
         }
@@ -104,7 +252,15 @@ public class AdminController {
             user.setRoles(Collections.singleton("ROLE_CUSTOMER"));
         }
 
-        User savedUser = userRepository.save(user);
+        User savedUser;
+        try {
+            savedUser = userRepository.saveAndFlush(user);
+        } catch (DataIntegrityViolationException e) {
+            logger.warn("Користувач з username={} вже існує", user.getUsername());
+            return ResponseEntity.badRequest().body("Ім'я користувача вже існує");
+        }
+        usernameIndex.add(savedUser.getUsername());
+        userDetailsService.evict(savedUser.getUsername());
         logger.info("Користувач створений успішно з id={}", savedUser.getId());
 
         return ResponseEntity.ok(savedUser);
@@ -116,6 +272,8 @@ public class AdminController {
 
         return userRepository.findById(id)
                 .map(user -> {
+                    String previousUsername = user.getUsername();
+
                     if (updatedUser.getUsername() != null) {
                         Optional<User> userWithSameUsername = userRepository.findByUsername(updatedUser.getUsername());
                         if (userWithSameUsername.isPresent() && !userWithSameUsername.get().getId().equals(id)) {
@@ -132,17 +290,36 @@ public class AdminController {
                         user.setPassword(passwordEncoder.encode(updatedUser.getPassword()));
                     }
 
-                    if (updatedUser.getRoles() != null) {
+                    boolean securityChanged = false;
+
+                    if (updatedUser.getRoleMask() != 0) {
                         logger.debug("Оновлення ролей користувача id={} на {}", id, updatedUser.getRoles());
-                        user.setRoles(updatedUser.getRoles());
+                        securityChanged |= updatedUser.getRoleMask() != user.getRoleMask();
+                        user.setRoleMask(updatedUser.getRoleMask());
                     }
 
                     if (updatedUser.getEnabled() != null) {
                         logger.debug("Оновлення статусу enabled користувача id={} на {}", id, updatedUser.getEnabled());
+                        securityChanged |= !updatedUser.getEnabled().equals(user.getEnabled());
                         user.setEnabled(updatedUser.getEnabled());
                     }
 
+                    if (securityChanged) {
+                        userSecurityVersions.bump(user);
+                    }
+
                     userRepository.save(user);
+                    if (securityChanged) {
+                        userSecurityVersions.publish(user);
+                    }
+                    if (Boolean.FALSE.equals(user.getEnabled())) {
+                        refreshTokenService.revokeAllForUser(id);
+                    }
+                    userDetailsService.evict(previousUsername);
+                    if (!user.getUsername().equals(previousUsername)) {
+                        usernameIndex.add(user.getUsername());
+                        userDetailsService.evict(user.getUsername());
+                    }
                     logger.info("Користувач id={} оновлений успішно", id);
                     return ResponseEntity.ok(user);
                 })
@@ -170,7 +347,10 @@ public class AdminController {
                     .body("Менеджера видалити неможливо, адже за ним закріплене кафе");
         }
 
+        refreshTokenService.deleteAllForUser(id);
         userRepository.deleteById(id);
+        userSecurityVersions.revokeAll(id);
+        userDetailsService.evict(user.getUsername());
         logger.info("Користувач id={} успішно видалений", id);
 
         return ResponseEntity.ok().build();
@@ -213,7 +393,7 @@ public class AdminController {
             cafe.setManager(manager);
         }
 
-        Cafe saved = cafeRepository.save(cafe);
+        Cafe saved = cafeService.saveCafe(cafe);
         logger.info("Кафе створено успішно з id={}", saved.getId());
 
         return ResponseEntity.ok(saved);
@@ -245,7 +425,8 @@ public class AdminController {
                         cafe.setManager(updatedCafe.getManager());
                     }
 
-                    cafeRepository.save(cafe);
+                    cafeService.saveCafe(cafe);
+                    menuCache.evict(id);
                     logger.info("Кафе id={} оновлено успішно", id);
                     return ResponseEntity.ok(cafe);
                 })
@@ -264,7 +445,9 @@ public class AdminController {
             return ResponseEntity.notFound().build();
         }
 
-        cafeRepository.deleteById(id);
+        cafeService.deleteCafe(id);
+        menuCache.evict(id);
+        menuCatalog.removeCafe(id);
         logger.info("Кафе з id={} успішно видалено", id);
 
         return ResponseEntity.ok().build();
@@ -309,6 +492,8 @@ public class AdminController {
         menuItem.setCafe(cafeOpt.get());
 
         MenuItem saved = menuItemRepository.save(menuItem);
+        menuCache.evict(saved.getCafe().getId());
+        menuCatalog.put(saved);
         logger.info("Пункт меню створено успішно з id={}", saved.getId());
 
         return ResponseEntity.ok(saved);
@@ -2,24 +2,40 @@ package com.example.cafe.controller;
 
 import com.example.cafe.model.User;
 import com.example.cafe.repository.UserRepository;
-import com.example.cafe.util.JwtUtil;
+import com.example.cafe.security.PasswordHashingExecutor;
+import com.example.cafe.security.TokenRevocationList;
+import com.example.cafe.security.UserPrincipal;
+import com.example.cafe.service.RefreshTokenService;
 import com.example.cafe.service.UserDetailsServiceImpl;
+import com.example.cafe.service.UsernameIndex;
+import com.example.cafe.util.JwtUtil;
+import com.example.cafe.util.VerifiedToken;
+import io.jsonwebtoken.JwtException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseCookie;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.AccountStatusUserDetailsChecker;
+import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.userdetails.UserDetailsChecker;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.security.core.userdetails.UserDetails;
-import jakarta.servlet.http.HttpServletRequest;
-import jakarta.servlet.http.HttpSession;
-import jakarta.servlet.http.Cookie;
 import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import java.util.Collections;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/auth/api")
@@ -27,6 +43,12 @@ public class AuthController {
 
     private static final Logger logger = LoggerFactory.getLogger(AuthController.class);
 
+    private static final String ACCESS_COOKIE = "jwt";
+    private static final String REFRESH_COOKIE = "refresh_token";
+    private static final String REFRESH_COOKIE_PATH = "/auth/api";
+
+    private static final UserDetailsChecker ACCOUNT_STATUS = new AccountStatusUserDetailsChecker();
+
     @Autowired
     private UserRepository userRepository;
 
@@ -34,16 +56,33 @@ public class AuthController {
     private PasswordEncoder passwordEncoder;
 
     @Autowired
-    private AuthenticationManager authenticationManager;
+    private UserDetailsServiceImpl userDetailsService;
 
     @Autowired
     private JwtUtil jwtUtil;
 
     @Autowired
-    private UserDetailsServiceImpl userDetailsService;
+    private RefreshTokenService refreshTokenService;
+
+    @Autowired
+    private TokenRevocationList tokenRevocationList;
+
+    @Autowired
+    private PasswordHashingExecutor passwordHashingExecutor;
+
+    // Database work after hashing runs here, so it never holds one of the CPU-sized hashing threads.
+    @Autowired
+    @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+    private AsyncTaskExecutor ioExecutor;
+
+    @Autowired
+    private UsernameIndex usernameIndex;
+
+    @Value("${security.password-pool.retry-after-seconds:1}")
+    private long retryAfterSeconds;
 
     @PostMapping("/register")
-    public ResponseEntity<?> registerUserApi(@RequestBody Map<String, String> userMap) {
+    public CompletableFuture<ResponseEntity<?>> registerUserApi(@RequestBody Map<String, String> userMap) {
         String username = userMap.get("username");
         String password = userMap.get("password");
         String role = userMap.getOrDefault("role", "ROLE_CUSTOMER");
@@ -52,12 +91,14 @@ public class AuthController {
 
         if (username == null || password == null) {
             logger.warn("Не вказано ім'я користувача або пароль");
-            return ResponseEntity.badRequest().body("Потрібні ім'я користувача та пароль");
+            return CompletableFuture.completedFuture(
+                    ResponseEntity.badRequest().body("Потрібні ім'я користувача та пароль"));
         }
 
-        if (userRepository.existsByUsername(username)) {
+        if (usernameIndex.mightExist(username) && userRepository.existsByUsername(username)) {
             logger.warn("Ім'я користувача '{}' вже зайняте", username);
-            return ResponseEntity.badRequest().body("Ім'я користувача вже зайняте");
+            return CompletableFuture.completedFuture(
+                    ResponseEntity.badRequest().body("Ім'я користувача вже зайняте"));
         }
 
         if (!isValidRole(role)) {
@@ -65,60 +106,154 @@ public class AuthController {
             role = "ROLE_CUSTOMER";
         }
 
-        User user = new User(username, passwordEncoder.encode(password), Collections.singleton(role));
-        userRepository.save(user);
-
-        logger.info("Користувач '{}' успішно зареєстрований з роллю '{}'", username, role);
-        return ResponseEntity.ok("Користувач успішно зареєструвався");
+        String assignedRole = role;
+        try {
+            return passwordHashingExecutor.submit("encode", () -> passwordEncoder.encode(password))
+                    .thenApplyAsync(encodedPassword -> {
+                        try {
+                            userRepository.saveAndFlush(new User(username, encodedPassword, Collections.singleton(assignedRole)));
+                        } catch (DataIntegrityViolationException e) {
+                            logger.warn("Ім'я користувача '{}' вже зайняте", username);
+                            return ResponseEntity.badRequest().body("Ім'я користувача вже зайняте");
+                        }
+                        usernameIndex.add(username);
+                        logger.info("Користувач '{}' успішно зареєстрований з роллю '{}'", username, assignedRole);
+                        return ResponseEntity.ok("Користувач успішно зареєструвався");
+                    }, ioExecutor);
+        } catch (RejectedExecutionException e) {
+            logger.warn("Черга хешування паролів переповнена, реєстрацію '{}' відхилено", username);
+            return CompletableFuture.completedFuture(serviceUnavailable());
+        }
     }
 
     @PostMapping("/login")
-    public ResponseEntity<?> loginUserApi(@RequestBody Map<String, String> loginMap, HttpServletRequest request, HttpServletResponse response) {
+    public CompletableFuture<ResponseEntity<?>> loginUserApi(@RequestBody Map<String, String> loginMap) {
         String username = loginMap.get("username");
         String password = loginMap.get("password");
 
         logger.info("Спроба входу користувача: {}", username);
 
-        try {
-            authenticationManager.authenticate(
-                    new UsernamePasswordAuthenticationToken(username, password)
-            );
-
-            HttpSession oldSession = request.getSession(false);
-            if (oldSession != null) {
-                oldSession.invalidate();
-            }
-            request.getSession(true);
+        if (username == null || password == null) {
+            return CompletableFuture.completedFuture(
+                    ResponseEntity.status(401).body("Недійсне ім'я користувача або пароль"));
+        }
 
-            UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+        // Only the BCrypt comparison runs on the hashing pool; loading the user is JDBC work.
+        CompletableFuture<UserPrincipal> authentication = CompletableFuture
+                .supplyAsync(() -> userDetailsService.loadUserByUsername(username), ioExecutor)
+                .thenCompose(user -> {
+                    ACCOUNT_STATUS.check(user);
+                    return passwordHashingExecutor.submit("verify", () -> passwordEncoder.matches(password, user.getPassword()))
+                            .thenApply(matches -> {
+                                if (!matches) {
+                                    throw new BadCredentialsException("Bad credentials");
+                                }
+                                return (UserPrincipal) user;
+                            });
+                });
 
-            String token = jwtUtil.generateToken(userDetails.getUsername(), userDetails.getAuthorities());
+        return authentication.handleAsync((principal, error) -> {
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                if (cause instanceof AuthenticationException) {
+                    logger.warn("Невдала спроба входу для користувача '{}'", username);
+                    return ResponseEntity.status(401).body("Недійсне ім'я користувача або пароль");
+                }
+                if (cause instanceof RejectedExecutionException) {
+                    logger.warn("Черга хешування паролів переповнена, вхід '{}' відхилено", username);
+                    return serviceUnavailable();
+                }
+                throw error instanceof CompletionException ce ? ce : new CompletionException(cause);
+            }
 
-            Cookie cookie = new Cookie("jwt", token);
-            cookie.setHttpOnly(true);
-            cookie.setPath("/");
-            cookie.setMaxAge(60 * 60 * 24);
-            response.addCookie(cookie);
+            String token = jwtUtil.generateToken(principal);
+            String refreshToken = refreshTokenService.issue(principal.getId());
 
             logger.info("Користувач '{}' успішно увійшов у систему", username);
-            return ResponseEntity.ok(Collections.singletonMap("token", token));
-        } catch (AuthenticationException e) {
-            logger.warn("Невдала спроба входу для користувача '{}'", username);
-            return ResponseEntity.status(401).body("Недійсне ім'я користувача або пароль");
-        }
+            return ResponseEntity.ok()
+                    .header(HttpHeaders.SET_COOKIE, cookie(ACCESS_COOKIE, token, "/", jwtUtil.getExpirationInMs()).toString())
+                    .header(HttpHeaders.SET_COOKIE, cookie(REFRESH_COOKIE, refreshToken, REFRESH_COOKIE_PATH,
+                            refreshTokenService.getExpirationInMs()).toString())
+                    .body(Collections.singletonMap("token", token));
+        }, ioExecutor);
     }
 
     private boolean isValidRole(String role) {
         return role.equals("ROLE_ADMIN") || role.equals("ROLE_MANAGER") || role.equals("ROLE_CUSTOMER");
     }
 
+    @PostMapping("/refresh")
+    public ResponseEntity<?> refreshToken(@CookieValue(name = REFRESH_COOKIE, required = false) String refreshToken,
+                                          HttpServletResponse response) {
+        if (refreshToken == null) {
+            return ResponseEntity.status(401).body("Refresh-токен відсутній");
+        }
+
+        Optional<RefreshTokenService.Rotation> rotation = refreshTokenService.rotate(refreshToken);
+        if (rotation.isEmpty()) {
+            logger.warn("Недійсний або прострочений refresh-токен");
+            clearCookie(response, REFRESH_COOKIE, REFRESH_COOKIE_PATH);
+            return ResponseEntity.status(401).body("Refresh-токен недійсний");
+        }
+
+        UserPrincipal principal = UserPrincipal.fromUser(rotation.get().user());
+        String token = jwtUtil.generateToken(principal);
+        addCookie(response, ACCESS_COOKIE, token, "/", jwtUtil.getExpirationInMs());
+        addCookie(response, REFRESH_COOKIE, rotation.get().refreshToken(), REFRESH_COOKIE_PATH,
+                refreshTokenService.getExpirationInMs());
+
+        logger.info("Токен доступу користувача '{}' оновлено", principal.getUsername());
+        return ResponseEntity.ok(Collections.singletonMap("token", token));
+    }
+
     @PostMapping("/auth/logout")
-    public void logout(HttpServletResponse response) {
-        Cookie cookie = new Cookie("jwt", null);
-        cookie.setHttpOnly(true);
-        cookie.setPath("/");
-        cookie.setMaxAge(0);
-        response.addCookie(cookie);
-        logger.info("Користувач вийшов із системи (JWT cookie видалено)");
+    public void logout(@CookieValue(name = ACCESS_COOKIE, required = false) String accessToken,
+                       @CookieValue(name = REFRESH_COOKIE, required = false) String refreshToken,
+                       @RequestHeader(name = "Authorization", required = false) String authorization,
+                       HttpServletResponse response) {
+        if (authorization != null && authorization.startsWith("Bearer ")) {
+            revokeAccessToken(authorization.substring(7));
+        }
+        if (accessToken != null) {
+            revokeAccessToken(accessToken);
+        }
+        if (refreshToken != null) {
+            refreshTokenService.revoke(refreshToken);
+        }
+
+        clearCookie(response, ACCESS_COOKIE, "/");
+        clearCookie(response, REFRESH_COOKIE, REFRESH_COOKIE_PATH);
+        logger.info("Користувач вийшов із системи (токени відкликано, cookie видалено)");
+    }
+
+    private void revokeAccessToken(String token) {
+        try {
+            VerifiedToken verified = jwtUtil.verify(token);
+            tokenRevocationList.revoke(verified.getTokenId(), verified.getExpiresAtMillis());
+        } catch (JwtException e) {
+            logger.debug("Токен для відкликання вже недійсний: {}", e.getMessage());
+        }
+    }
+
+    private ResponseEntity<?> serviceUnavailable() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                .body("Сервер перевантажений, спробуйте пізніше");
+    }
+
+    private static void addCookie(HttpServletResponse response, String name, String value, String path, long maxAgeMs) {
+        response.addHeader(HttpHeaders.SET_COOKIE, cookie(name, value, path, maxAgeMs).toString());
+    }
+
+    private static void clearCookie(HttpServletResponse response, String name, String path) {
+        response.addHeader(HttpHeaders.SET_COOKIE, cookie(name, "", path, 0).toString());
+    }
+
+    private static ResponseCookie cookie(String name, String value, String path, long maxAgeMs) {
+        return ResponseCookie.from(name, value)
+                .httpOnly(true)
+                .path(path)
+                .maxAge(maxAgeMs / 1000)
+                .build();
     }
 }
@@ -1,9 +1,13 @@
 package com.example.cafe.controller;
 
+import com.example.cafe.dto.CafeSummary;
+import com.example.cafe.dto.MenuVersion;
 import com.example.cafe.service.CafeService;
 import com.example.cafe.model.Cafe;
-import com.example.cafe.model.MenuItem;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import java.util.List;
 import lombok.RequiredArgsConstructor;
 
@@ -14,8 +18,12 @@ public class CafeController {
     private final CafeService cafeService;
 
     @GetMapping
-    public List<Cafe> getAllCafes() {
-        return cafeService.getAllCafes();
+    public ResponseEntity<List<CafeSummary>> getAllCafes(WebRequest request) {
+        String eTag = cafeService.getCafesVersion().eTag();
+        if (request.checkNotModified(eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+        }
+        return ResponseEntity.ok().eTag(eTag).body(cafeService.getAllCafes());
     }
 
     @GetMapping("/{id}")
@@ -29,7 +37,13 @@ public class CafeController {
     }
 
     @GetMapping("/{id}/menu")
-    public List<MenuItem> getMenuItemsByCafe(@PathVariable Long id) {
-        return cafeService.getMenuItemsByCafe(id);
+    public ResponseEntity<byte[]> getMenuItemsByCafe(@PathVariable Long id, WebRequest request) {
+        MenuVersion version = cafeService.findMenuVersion(id)
+                .orElseThrow(() -> new RuntimeException("Cafe not found"));
+        String eTag = version.eTag();
+        if (request.checkNotModified(eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+        }
+        return cafeService.getMenuItemsByCafe(version).toResponse(request);
     }
-}
\ No newline at end of file
+}
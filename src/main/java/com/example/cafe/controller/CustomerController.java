@@ -1,22 +1,34 @@
 package com.example.cafe.controller;
 
-import com.example.cafe.model.Cafe;
-import com.example.cafe.model.MenuItem;
+import com.example.cafe.dto.CafeSummary;
+import com.example.cafe.dto.MenuVersion;
 import com.example.cafe.model.Order;
 import com.example.cafe.model.User;
 import com.example.cafe.repository.CafeRepository;
-import com.example.cafe.repository.MenuItemRepository;
-import com.example.cafe.repository.OrderRepository;
+import com.example.cafe.repository.OrderHistoryRepository;
 import com.example.cafe.repository.UserRepository;
+import com.example.cafe.security.UserPrincipal;
+import com.example.cafe.service.MenuCache;
+import com.example.cafe.service.OrderRejectedException;
+import com.example.cafe.service.OrderService;
+import com.example.cafe.service.RenderedMenu;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.security.core.Authentication;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.*;
 
 @RestController
@@ -27,37 +39,54 @@ public class CustomerController {
     private static final Logger logger = LoggerFactory.getLogger(CustomerController.class);
 
     private final CafeRepository cafeRepository;
-    private final MenuItemRepository menuItemRepository;
-    private final OrderRepository orderRepository;
+    private final OrderService orderService;
     private final UserRepository userRepository;
+    private final OrderHistoryRepository orderHistoryRepository;
+    private final ObjectMapper objectMapper;
+    private final MenuCache menuCache;
 
     @Autowired
     public CustomerController(CafeRepository cafeRepository,
-                              MenuItemRepository menuItemRepository,
-                              OrderRepository orderRepository,
-                              UserRepository userRepository) {
+                              OrderService orderService,
+                              UserRepository userRepository,
+                              OrderHistoryRepository orderHistoryRepository,
+                              ObjectMapper objectMapper,
+                              MenuCache menuCache) {
         this.cafeRepository = cafeRepository;
-        this.menuItemRepository = menuItemRepository;
-        this.orderRepository = orderRepository;
+        this.orderService = orderService;
         this.userRepository = userRepository;
+        this.orderHistoryRepository = orderHistoryRepository;
+        this.objectMapper = objectMapper;
+        this.menuCache = menuCache;
     }
 
     @GetMapping("/cafes")
-    public ResponseEntity<List<Cafe>> getAllCafes() {
+    public ResponseEntity<List<CafeSummary>> getAllCafes(WebRequest request) {
+        String eTag = cafeRepository.findListVersion().eTag();
+        if (request.checkNotModified(eTag)) {
+            logger.debug("Список кафе не змінився");
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+        }
         logger.info("Отримання списку всіх кафе");
-        return ResponseEntity.ok(cafeRepository.findAll());
+        return ResponseEntity.ok().eTag(eTag).body(cafeRepository.findAllSummaries());
     }
 
     @GetMapping("/cafes/{cafeId}/menu")
-    public ResponseEntity<List<MenuItem>> getMenuByCafe(@PathVariable Long cafeId) {
+    public ResponseEntity<byte[]> getMenuByCafe(@PathVariable Long cafeId, WebRequest request) {
+        MenuVersion version = cafeRepository.findMenuVersion(cafeId).orElse(null);
+        String eTag = version != null ? version.eTag() : null;
+        if (eTag != null && request.checkNotModified(eTag)) {
+            logger.debug("Меню кафе ID={} не змінилося", cafeId);
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+        }
         logger.info("Отримання меню для кафе з ID={}", cafeId);
-        if (!cafeRepository.existsById(cafeId)) {
+        RenderedMenu menu = version != null ? menuCache.menuOf(version) : null;
+        if (menu == null) {
             logger.warn("Кафе з ID={} не знайдено", cafeId);
             return ResponseEntity.notFound().build();
         }
-        List<MenuItem> menu = menuItemRepository.findByCafeId(cafeId);
         logger.info("Знайдено {} позицій у меню кафе ID={}", menu.size(), cafeId);
-        return ResponseEntity.ok(menuItemRepository.findByCafeId(cafeId));
+        return menu.toResponse(request);
     }
 
     @PostMapping("/orders")
@@ -65,90 +94,71 @@ public class CustomerController {
         String username = authentication.getName();
         logger.info("Спроба створити замовлення користувачем '{}'", username);
 
-        User currentUser = userRepository.findByUsername(username)
-                .orElseThrow(() -> {
-                    logger.error("Користувача '{}' не знайдено у базі", username);
-                    return new UsernameNotFoundException("Користувача не знайдено");
-                });
-
-        if (orderRequest.getCafe() == null || orderRequest.getCafe().getId() == null) {
-            logger.warn("Замовлення не містить ID кафе");
-            return ResponseEntity.badRequest().body("Кафе є обов’язковим");
-        }
-
-        Optional<Cafe> cafeOpt = cafeRepository.findById(orderRequest.getCafe().getId());
-        if (cafeOpt.isEmpty()) {
-            logger.warn("Кафе з ID={} не знайдено", orderRequest.getCafe().getId());
-            return ResponseEntity.badRequest().body("Кафе не знайдено");
-        }
-
-        Cafe cafe = cafeOpt.get();
-
-        if (orderRequest.getItems() == null || orderRequest.getItems().isEmpty()) {
-            logger.warn("Замовлення не містить позицій");
-            return ResponseEntity.badRequest().body("Список позицій замовлення не може бути порожнім");
-        }
-
-        List<MenuItem> validItems = new ArrayList<>();
-        for (MenuItem item : orderRequest.getItems()) {
-            Optional<MenuItem> itemOpt = menuItemRepository.findById(item.getId());
-            if (itemOpt.isEmpty()) {
-                logger.warn("Позицію меню з ID={} не знайдено", item.getId());
-                return ResponseEntity.badRequest().body("Позицію меню не знайдено: ID = " + item.getId());
-            }
-            if (!itemOpt.get().getCafe().getId().equals(cafe.getId())) {
-                logger.warn("Позиція меню ID={} не належить до кафе ID={}", item.getId(), cafe.getId());
-                return ResponseEntity.badRequest().body("Позиція не належить до вибраного кафе");
-            }
-            validItems.add(itemOpt.get());
-        }
-
+        // Only what the client may choose is copied; lines and the total are the service's to fill in.
         Order newOrder = new Order();
-        newOrder.setCafe(cafe);
-        newOrder.setItems(validItems);
-        newOrder.setUser(currentUser);
-
-        double totalAmount = validItems.stream()
-                .mapToDouble(MenuItem::getPrice)
-                .sum();
-        newOrder.setTotalAmount(totalAmount);
-
-        Order savedOrder = orderRepository.save(newOrder);
-        logger.info("Замовлення ID={} створено користувачем '{}', сума: {}", savedOrder.getId(), username, totalAmount);
+        newOrder.setCafe(orderRequest.getCafe());
+        newOrder.setItems(orderRequest.getItems());
+        newOrder.setUser(currentUser(authentication));
+
+        Order savedOrder;
+        try {
+            savedOrder = orderService.placeOrder(newOrder);
+        } catch (OrderRejectedException e) {
+            logger.warn("Замовлення користувача '{}' відхилено: {}", username, e.getMessage());
+            return ResponseEntity.badRequest().body(rejectionMessage(e));
+        }
+        logger.info("Замовлення ID={} створено користувачем '{}', сума: {}",
+                savedOrder.getId(), username, savedOrder.getTotalAmount());
 
         return ResponseEntity.ok(savedOrder);
     }
 
+    private static String rejectionMessage(OrderRejectedException e) {
+        return switch (e.getReason()) {
+            case CAFE_REQUIRED -> "Кафе є обов’язковим";
+            case CAFE_NOT_FOUND -> "Кафе не знайдено";
+            case NO_ITEMS -> "Список позицій замовлення не може бути порожнім";
+            case MENU_ITEM_NOT_FOUND -> "Позицію меню не знайдено: ID = " + e.getMenuItemId();
+            case MENU_ITEM_FROM_OTHER_CAFE -> "Позиція не належить до вибраного кафе";
+        };
+    }
+
     @GetMapping("/orders")
-    public ResponseEntity<List<Map<String, Object>>> getUserOrders(Authentication authentication) {
+    public ResponseEntity<StreamingResponseBody> getUserOrders(Authentication authentication) {
         String username = authentication.getName();
         logger.info("Отримання замовлень для користувача '{}'", username);
 
-        User currentUser = userRepository.findByUsername(username)
-                .orElseThrow(() -> {
-                    logger.error("Користувача '{}' не знайдено", username);
-                    return new UsernameNotFoundException("Користувача не знайдено");
+        Long userId = currentUser(authentication).getId();
+
+        StreamingResponseBody body = out -> {
+            int[] count = {0};
+            try (JsonGenerator json = objectMapper.getFactory().createGenerator(out)) {
+                json.writeStartArray();
+                orderHistoryRepository.forEachByUserId(userId, row -> {
+                    try {
+                        json.writeObject(row);
+                        count[0]++;
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
                 });
+                json.writeEndArray();
+            }
+            logger.info("Знайдено {} замовлень для користувача '{}'", count[0], username);
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
 
-        List<Order> orders = orderRepository.findByUserId(currentUser.getId());
-
-        List<Map<String, Object>> response = new ArrayList<>();
-        for (Order order : orders) {
-            Map<String, Object> map = new HashMap<>();
-            map.put("id", order.getId());
-            map.put("cafeName", order.getCafe().getName());
-            map.put("totalAmount", order.getTotalAmount());
-
-            List<String> itemNames = order.getItems()
-                    .stream()
-                    .map(MenuItem::getName)
-                    .toList();
-            map.put("itemNames", itemNames);
-
-            response.add(map);
+    private User currentUser(Authentication authentication) {
+        if (authentication.getPrincipal() instanceof UserPrincipal principal) {
+            return principal.toUserReference();
         }
 
-        logger.info("Знайдено {} замовлень для користувача '{}'", response.size(), username);
-        return ResponseEntity.ok(response);
+        String username = authentication.getName();
+        return userRepository.findByUsername(username)
+                .orElseThrow(() -> {
+                    logger.error("Користувача '{}' не знайдено у базі", username);
+                    return new UsernameNotFoundException("Користувача не знайдено");
+                });
     }
-}
\ No newline at end of file
+}
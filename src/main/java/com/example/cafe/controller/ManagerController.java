@@ -1,5 +1,8 @@
 package com.example.cafe.controller;
 
+import com.example.cafe.dto.ManagerOrderRow;
+import com.example.cafe.dto.MenuVersion;
+import com.example.cafe.dto.OrderPage;
 import com.example.cafe.model.Cafe;
 import com.example.cafe.model.MenuItem;
 import com.example.cafe.model.Order;
@@ -7,15 +10,24 @@ import com.example.cafe.model.User;
 import com.example.cafe.repository.CafeRepository;
 import com.example.cafe.repository.MenuItemRepository;
 import com.example.cafe.repository.OrderRepository;
+import com.example.cafe.repository.OrderSpecifications;
 import com.example.cafe.repository.UserRepository;
+import com.example.cafe.security.CafeOwnershipIndex;
+import com.example.cafe.security.UserPrincipal;
+import com.example.cafe.service.MenuCache;
+import com.example.cafe.service.MenuCatalog;
+import com.example.cafe.service.RenderedMenu;
+import com.example.cafe.util.LongHashSet;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.*;
 import java.util.stream.Collectors;
@@ -27,20 +39,32 @@ public class ManagerController {
 
     private static final Logger logger = LoggerFactory.getLogger(ManagerController.class);
 
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 200;
+
     private final CafeRepository cafeRepository;
     private final MenuItemRepository menuItemRepository;
     private final OrderRepository orderRepository;
     private final UserRepository userRepository;
+    private final CafeOwnershipIndex cafeOwnershipIndex;
+    private final MenuCache menuCache;
+    private final MenuCatalog menuCatalog;
 
     @Autowired
     public ManagerController(CafeRepository cafeRepository,
                              MenuItemRepository menuItemRepository,
                              OrderRepository orderRepository,
-                             UserRepository userRepository) {
+                             UserRepository userRepository,
+                             CafeOwnershipIndex cafeOwnershipIndex,
+                             MenuCache menuCache,
+                             MenuCatalog menuCatalog) {
         this.cafeRepository = cafeRepository;
         this.menuItemRepository = menuItemRepository;
         this.orderRepository = orderRepository;
         this.userRepository = userRepository;
+        this.cafeOwnershipIndex = cafeOwnershipIndex;
+        this.menuCache = menuCache;
+        this.menuCatalog = menuCatalog;
     }
 
     @GetMapping("/cafes")
@@ -48,7 +72,7 @@ public class ManagerController {
         String username = userDetails.getUsername();
         logger.info("Менеджер '{}' запитує список своїх кав'ярень", username);
 
-        Optional<User> manager = userRepository.findByUsername(userDetails.getUsername());
+        Optional<User> manager = currentManager(userDetails);
         if (manager.isEmpty()) {
             logger.warn("Менеджера '{}' не знайдено", username);
             return ResponseEntity.status(403).body("Менеджера не знайдено");
@@ -61,55 +85,82 @@ public class ManagerController {
 
     @GetMapping("/cafes/{cafeId}/menu")
     public ResponseEntity<?> getCafeMenu(@PathVariable Long cafeId,
-                                         @AuthenticationPrincipal UserDetails userDetails) {
+                                         @AuthenticationPrincipal UserDetails userDetails,
+                                         WebRequest request) {
         String username = userDetails.getUsername();
         logger.info("Менеджер '{}' запитує меню для кафе з ID={}", username, cafeId);
 
-        Optional<User> manager = userRepository.findByUsername(userDetails.getUsername());
+        Optional<User> manager = currentManager(userDetails);
         if (manager.isEmpty()) {
             logger.warn("Менеджера '{}' не знайдено", userDetails.getUsername());
             return ResponseEntity.status(403).body("Менеджера не знайдено");
         }
 
-        Optional<Cafe> cafeOpt = cafeRepository.findById(cafeId);
-        if (cafeOpt.isEmpty() || !manager.get().equals(cafeOpt.get().getManager())) {
+        if (!cafeOwnershipIndex.isManagedBy(manager.get().getId(), cafeId)) {
             logger.warn("Менеджер '{}' намагається отримати доступ до кафе ID={}, яке йому не належить", username, cafeId);
             return ResponseEntity.status(403).body("Ця кав'ярня вам не належить");
         }
 
-        List<MenuItem> menuItems = menuItemRepository.findByCafeId(cafeId);
-        logger.info("Знайдено {} позицій меню для кафе ID={}", menuItems.size(), cafeId);
-        return ResponseEntity.ok(menuItems);
+        MenuVersion version = cafeRepository.findMenuVersion(cafeId).orElse(null);
+        RenderedMenu menu = version != null ? menuCache.menuOf(version) : null;
+        if (menu == null) {
+            logger.warn("Кафе з ID={} не знайдено", cafeId);
+            return ResponseEntity.notFound().build();
+        }
+        logger.info("Знайдено {} позицій меню для кафе ID={}", menu.size(), cafeId);
+        return menu.toResponse(request);
     }
 
     @GetMapping("/orders")
     public ResponseEntity<?> getOrdersFromManagedCafes(
             @AuthenticationPrincipal UserDetails userDetails,
-            @RequestParam(required = false) Long cafeId) {
+            @RequestParam(required = false) Long cafeId,
+            @RequestParam(required = false) String customer,
+            @RequestParam(required = false) Double minTotal,
+            @RequestParam(required = false) Double maxTotal,
+            @RequestParam(required = false) Long before,
+            @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int size) {
         String username = userDetails.getUsername();
-        logger.info("Менеджер '{}' запитує замовлення (фільтр кафе ID={})", username, cafeId);
+        logger.info("Менеджер '{}' запитує замовлення (фільтр кафе ID={}, курсор={})", username, cafeId, before);
 
-        Optional<User> manager = userRepository.findByUsername(userDetails.getUsername());
+        Optional<User> manager = currentManager(userDetails);
         if (manager.isEmpty()) {
             logger.warn("Менеджера '{}' не знайдено", userDetails.getUsername());
             return ResponseEntity.status(403).body("Менеджера не знайдено");
         }
 
-        List<Cafe> cafes = cafeRepository.findByManager(manager.get());
-        List<Long> cafeIds = cafes.stream().map(Cafe::getId).collect(Collectors.toList());
-
-        if (cafeId != null && !cafeIds.contains(cafeId)) {
-            logger.warn("Менеджер '{}' намагається отримати замовлення кав'ярні, яка йому не належить (ID={})", userDetails.getUsername(), cafeId);
-            return ResponseEntity.status(403).body("Ця кав'ярня вам не належить");
+        List<Long> scope;
+        if (cafeId != null) {
+            if (!cafeOwnershipIndex.isManagedBy(manager.get().getId(), cafeId)) {
+                logger.warn("Менеджер '{}' намагається отримати замовлення кав'ярні, яка йому не належить (ID={})", userDetails.getUsername(), cafeId);
+                return ResponseEntity.status(403).body("Ця кав'ярня вам не належить");
+            }
+            scope = List.of(cafeId);
+        } else {
+            LongHashSet cafeIds = cafeOwnershipIndex.cafeIdsOf(manager.get().getId());
+            if (cafeIds.isEmpty()) {
+                return ResponseEntity.ok(new OrderPage(List.of(), null));
+            }
+            scope = Arrays.stream(cafeIds.toArray()).boxed().collect(Collectors.toList());
+        }
+        Specification<Order> spec = Specification.where(OrderSpecifications.inCafes(scope))
+                .and(OrderSpecifications.idBefore(before))
+                .and(OrderSpecifications.customer(customer))
+                .and(OrderSpecifications.totalAtLeast(minTotal))
+                .and(OrderSpecifications.totalAtMost(maxTotal))
+                .and(OrderSpecifications.fetchCafeAndUser());
+
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        List<Order> orders = orderRepository.findPage(spec, pageSize + 1);
+        Long nextCursor = null;
+        if (orders.size() > pageSize) {
+            orders = orders.subList(0, pageSize);
+            nextCursor = orders.get(pageSize - 1).getId();
         }
-
-        List<Order> orders = orderRepository.findAll().stream()
-                .filter(order -> order.getCafe() != null &&
-                        (cafeId == null ? cafeIds.contains(order.getCafe().getId()) : order.getCafe().getId().equals(cafeId)))
-                .collect(Collectors.toList());
 
         logger.debug("Менеджер '{}' отримав {} замовлень", userDetails.getUsername(), orders.size());
-        return ResponseEntity.ok(orders);
+        List<ManagerOrderRow> rows = orders.stream().map(ManagerOrderRow::of).collect(Collectors.toList());
+        return ResponseEntity.ok(new OrderPage(rows, nextCursor));
     }
 
     @PostMapping("/menu-items")
@@ -148,7 +199,16 @@ public class ManagerController {
 
         menuItem.setCafe(cafeOpt.get());
         MenuItem saved = menuItemRepository.save(menuItem);
+        menuCache.evict(saved.getCafe().getId());
+        menuCatalog.put(saved);
         logger.info("Пункт меню успішно створено: ID={}, Назва='{}'", saved.getId(), saved.getName());
         return ResponseEntity.ok(saved);
     }
+
+    private Optional<User> currentManager(UserDetails userDetails) {
+        if (userDetails instanceof UserPrincipal principal) {
+            return Optional.of(principal.toUserReference());
+        }
+        return userRepository.findByUsername(userDetails.getUsername());
+    }
 }
@@ -1,18 +1,26 @@
 package com.example.cafe.controller;
 
+import com.example.cafe.dto.MenuVersion;
 import com.example.cafe.service.MenuItemService;
+import com.example.cafe.service.RenderedMenu;
 import com.example.cafe.model.MenuItem;
 import org.springframework.web.bind.annotation.*;
 import lombok.RequiredArgsConstructor;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Optional;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
 
 @RestController
 @RequestMapping("/menu")
 @RequiredArgsConstructor
 public class MenuItemController {
 
+    private static final byte[] NO_MENU = "[]".getBytes(StandardCharsets.UTF_8);
+
     private final MenuItemService menuItemService;
 
     @GetMapping
@@ -21,8 +29,19 @@ public class MenuItemController {
     }
 
     @GetMapping("/{cafeId}")
-    public List<MenuItem> getMenu(@PathVariable Long cafeId) {
-        return menuItemService.getMenuByCafeId(cafeId);
+    public ResponseEntity<byte[]> getMenu(@PathVariable Long cafeId, WebRequest request) {
+        Optional<MenuVersion> version = menuItemService.findMenuVersion(cafeId);
+        if (version.isPresent()) {
+            String eTag = version.get().eTag();
+            if (request.checkNotModified(eTag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+            }
+            RenderedMenu menu = menuItemService.getMenuByCafeId(version.get());
+            if (menu != null) {
+                return menu.toResponse(request);
+            }
+        }
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(NO_MENU);
     }
 
     @PostMapping
@@ -1,6 +1,5 @@
 package com.example.cafe.controller;
 
-import jakarta.servlet.http.HttpServletRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.ResponseEntity;
@@ -9,6 +8,8 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RestController;
 import com.example.cafe.model.User;
 import com.example.cafe.repository.UserRepository;
+import com.example.cafe.security.UserPrincipal;
+import com.example.cafe.util.VerifiedToken;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -26,7 +27,7 @@ public class UserController {
     }
 
     @GetMapping("/auth/me")
-    public ResponseEntity<?> getCurrentUser(Authentication authentication, HttpServletRequest request) {
+    public ResponseEntity<?> getCurrentUser(Authentication authentication) {
         if (authentication == null || !authentication.isAuthenticated()) {
             logger.warn("Спроба доступу до /auth/me без авторизації");
             return ResponseEntity.status(401).body("Неавторизовано");
@@ -35,6 +36,14 @@ public class UserController {
         String username = authentication.getName();
         logger.info("Отримання інформації про поточного користувача: {}", username);
 
+        if (authentication.getPrincipal() instanceof UserPrincipal principal) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("username", principal.getUsername());
+            response.put("roles", principal.getRoleNames());
+            response.put("tokenId", tokenId(authentication));
+            return ResponseEntity.ok(response);
+        }
+
         Optional<User> optionalUser = userRepository.findByUsername(username);
 
         if (!optionalUser.isPresent()) {
@@ -48,9 +57,12 @@ public class UserController {
         Map<String, Object> response = new HashMap<>();
         response.put("username", user.getUsername());
         response.put("roles", user.getRoles());
-        response.put("sessionId", request.getSession().getId());
+        response.put("tokenId", tokenId(authentication));
 
         return ResponseEntity.ok(response);
     }
-}
 
+    private static String tokenId(Authentication authentication) {
+        return authentication.getCredentials() instanceof VerifiedToken token ? token.getTokenId() : null;
+    }
+}
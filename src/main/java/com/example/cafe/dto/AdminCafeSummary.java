@@ -0,0 +1,14 @@
+package com.example.cafe.dto;
+
+/**
+ * Cafe listing row for the admin panel, with the manager reduced to id and username.
+ */
+public record AdminCafeSummary(Long id, String name, String address, String city, ManagerRef manager) {
+
+    public AdminCafeSummary(Long id, String name, String address, String city, Long managerId, String managerUsername) {
+        this(id, name, address, city, managerId != null ? new ManagerRef(managerId, managerUsername) : null);
+    }
+
+    public record ManagerRef(Long id, String username) {
+    }
+}
@@ -0,0 +1,6 @@
+package com.example.cafe.dto;
+
+import java.util.List;
+
+public record AdminOrderRow(Long id, String username, String cafeName, double totalAmount, List<String> itemNames) {
+}
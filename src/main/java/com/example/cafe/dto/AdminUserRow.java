@@ -0,0 +1,6 @@
+package com.example.cafe.dto;
+
+import java.util.Set;
+
+public record AdminUserRow(Long id, String username, Boolean enabled, Set<String> roles) {
+}
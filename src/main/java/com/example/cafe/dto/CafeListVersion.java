@@ -0,0 +1,12 @@
+package com.example.cafe.dto;
+
+/**
+ * Changes whenever a cafe is created, updated or deleted: an update moves the sum of versions on,
+ * and ids are never reused, so a delete followed by a create still changes the largest id.
+ */
+public record CafeListVersion(Long count, Long versionSum, Long maxId) {
+
+    public String eTag() {
+        return "\"cafes-" + count + "-" + versionSum + "-" + maxId + "\"";
+    }
+}
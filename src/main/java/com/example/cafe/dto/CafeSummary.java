@@ -0,0 +1,7 @@
+package com.example.cafe.dto;
+
+/**
+ * Public view of a cafe for listings; carries nothing about its manager.
+ */
+public record CafeSummary(Long id, String name, String address, String city) {
+}
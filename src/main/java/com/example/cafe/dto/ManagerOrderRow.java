@@ -0,0 +1,22 @@
+package com.example.cafe.dto;
+
+import com.example.cafe.model.Order;
+
+import java.util.List;
+
+/**
+ * An order as a manager sees it: the customer is only named, never serialized as a {@code User}.
+ */
+public record ManagerOrderRow(Long id, Long cafeId, Long customerId, String customerUsername,
+                              double totalAmount, List<String> itemNames) {
+
+    public static ManagerOrderRow of(Order order) {
+        return new ManagerOrderRow(
+                order.getId(),
+                order.getCafe() != null ? order.getCafe().getId() : null,
+                order.getUser() != null ? order.getUser().getId() : null,
+                order.getUser() != null ? order.getUser().getUsername() : null,
+                order.getTotalAmount(),
+                order.getItemNames());
+    }
+}
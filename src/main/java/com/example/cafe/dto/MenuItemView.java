@@ -0,0 +1,8 @@
+package com.example.cafe.dto;
+
+/**
+ * One menu entry as menu responses carry it; unlike the entity it does not drag the cafe and its
+ * manager along.
+ */
+public record MenuItemView(Long id, String name, Double price, String category, Long cafeId) {
+}
@@ -0,0 +1,20 @@
+package com.example.cafe.dto;
+
+/**
+ * The version of a cafe's menu response: the menu version, which each change to the cafe's menu
+ * moves on, and the version of the cafe row. Items carry only the cafe id, so a cafe update leaves
+ * the body as it was and just moves the ETag on.
+ */
+public record MenuVersion(Long cafeId, Long cafeVersion, Long menuVersion) {
+
+    /**
+     * Whether this version was read after {@code other}; both counters only ever move forward.
+     */
+    public boolean isNewerThan(MenuVersion other) {
+        return cafeVersion > other.cafeVersion || menuVersion > other.menuVersion;
+    }
+
+    public String eTag() {
+        return "\"menu-" + cafeId + "-" + cafeVersion + "-" + menuVersion + "\"";
+    }
+}
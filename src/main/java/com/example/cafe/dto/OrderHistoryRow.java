@@ -0,0 +1,9 @@
+package com.example.cafe.dto;
+
+import java.util.List;
+
+/**
+ * One row of a customer's order history as read by a single SQL query.
+ */
+public record OrderHistoryRow(long id, String cafeName, double totalAmount, List<String> itemNames) {
+}
@@ -0,0 +1,15 @@
+package com.example.cafe.dto;
+
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * One page of orders, newest first. {@code nextCursor} is passed back as {@code before} to get the
+ * next page and is {@code null} on the last one.
+ */
+@Value
+public class OrderPage {
+    List<ManagerOrderRow> orders;
+    Long nextCursor;
+}
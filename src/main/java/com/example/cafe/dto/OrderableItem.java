@@ -0,0 +1,7 @@
+package com.example.cafe.dto;
+
+/**
+ * The parts of a menu item needed to price an order line.
+ */
+public record OrderableItem(Long id, String name, Double price, Long cafeId) {
+}
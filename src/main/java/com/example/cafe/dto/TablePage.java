@@ -0,0 +1,11 @@
+package com.example.cafe.dto;
+
+import java.util.List;
+
+/**
+ * One page of an admin table. {@code nextCursor} is {@code null} on the last page. {@code total} is
+ * the planner's row estimate unless {@code totalExact} is set, and {@code null} when a filtered
+ * table was not counted.
+ */
+public record TablePage<R>(List<R> rows, String nextCursor, Long total, boolean totalExact) {
+}
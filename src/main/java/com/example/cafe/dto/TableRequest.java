@@ -0,0 +1,23 @@
+package com.example.cafe.dto;
+
+/**
+ * Paging parameters shared by the admin tables, bound from the query string. {@code after} is the
+ * {@code nextCursor} of the previous page; {@code exact} asks for a real count instead of an estimate.
+ */
+public record TableRequest(String sort, String dir, String after, Integer size, Boolean exact) {
+
+    public static final int DEFAULT_SIZE = 50;
+    public static final int MAX_SIZE = 200;
+
+    public int pageSize() {
+        return size == null ? DEFAULT_SIZE : Math.max(1, Math.min(size, MAX_SIZE));
+    }
+
+    public boolean descending() {
+        return "desc".equalsIgnoreCase(dir);
+    }
+
+    public boolean exactCount() {
+        return Boolean.TRUE.equals(exact);
+    }
+}
@@ -0,0 +1,196 @@
+package com.example.cafe.filter;
+
+import com.example.cafe.util.TokenBucketRateLimiter;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.web.util.matcher.IpAddressMatcher;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throttles login and registration per client IP and per username before any BCrypt work or
+ * database lookup happens. The client IP is the peer address, unless the peer is one of
+ * {@code security.rate-limit.trusted-proxies}: then it is the nearest {@code X-Forwarded-For} hop
+ * that is not a trusted proxy itself, so that clients behind the platform's proxy get buckets of
+ * their own and cannot pick one by sending the header directly.
+ */
+@Component
+public class AuthRateLimitFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuthRateLimitFilter.class);
+
+    private static final int MAX_BODY_BYTES = 16 * 1024;
+
+    private static final String FORWARDED_FOR = "X-Forwarded-For";
+
+    private final boolean enabled;
+    private final TokenBucketRateLimiter ipLimiter;
+    private final TokenBucketRateLimiter usernameLimiter;
+    private final ObjectMapper objectMapper;
+    private final Counter ipRejections;
+    private final Counter usernameRejections;
+    private final List<IpAddressMatcher> trustedProxies;
+
+    public AuthRateLimitFilter(@Value("${security.rate-limit.enabled:true}") boolean enabled,
+                               @Value("${security.rate-limit.ip.capacity:20}") int ipCapacity,
+                               @Value("${security.rate-limit.ip.refill-period:1m}") Duration ipRefillPeriod,
+                               @Value("${security.rate-limit.username.capacity:5}") int usernameCapacity,
+                               @Value("${security.rate-limit.username.refill-period:1m}") Duration usernameRefillPeriod,
+                               @Value("${security.rate-limit.max-keys:100000}") long maxKeys,
+                               @Value("${security.rate-limit.idle-timeout:10m}") Duration idleTimeout,
+                               @Value("${security.rate-limit.trusted-proxies:}") List<String> trustedProxies,
+                               ObjectMapper objectMapper,
+                               MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.ipLimiter = new TokenBucketRateLimiter(ipCapacity, ipRefillPeriod, maxKeys, idleTimeout);
+        this.usernameLimiter = new TokenBucketRateLimiter(usernameCapacity, usernameRefillPeriod, maxKeys, idleTimeout);
+        this.objectMapper = objectMapper;
+        this.ipRejections = meterRegistry.counter("auth.rate_limit.rejected", "key", "ip");
+        this.usernameRejections = meterRegistry.counter("auth.rate_limit.rejected", "key", "username");
+        this.trustedProxies = trustedProxies.stream()
+                .map(String::trim)
+                .filter(proxy -> !proxy.isEmpty())
+                .map(IpAddressMatcher::new)
+                .toList();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!enabled || !"POST".equals(request.getMethod())) {
+            return true;
+        }
+        String path = request.getServletPath();
+        return !path.equals("/auth/api/login") && !path.equals("/auth/api/register");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+
+        String clientIp = clientIp(request);
+        long wait = ipLimiter.tryAcquire(clientIp);
+        if (wait > 0) {
+            ipRejections.increment();
+            logger.warn("Забагато запитів автентифікації з IP {}", clientIp);
+            reject(response, wait);
+            return;
+        }
+
+        if (request.getContentLengthLong() > MAX_BODY_BYTES) {
+            tooLarge(response);
+            return;
+        }
+        CachedBodyHttpServletRequest cachedRequest = new CachedBodyHttpServletRequest(request, MAX_BODY_BYTES);
+        if (cachedRequest.exceedsLimit()) {
+            tooLarge(response);
+            return;
+        }
+        String username = extractUsername(cachedRequest.getBody());
+        if (username != null) {
+            wait = usernameLimiter.tryAcquire(username);
+            if (wait > 0) {
+                usernameRejections.increment();
+                logger.warn("Забагато спроб автентифікації для користувача '{}'", username);
+                reject(response, wait);
+                return;
+            }
+        }
+
+        filterChain.doFilter(cachedRequest, response);
+    }
+
+    private String clientIp(HttpServletRequest request) {
+        String remoteAddr = request.getRemoteAddr();
+        String forwardedFor = request.getHeader(FORWARDED_FOR);
+        if (forwardedFor == null || !isTrustedProxy(remoteAddr)) {
+            return remoteAddr;
+        }
+        String[] hops = forwardedFor.split(",");
+        String client = remoteAddr;
+        for (int i = hops.length - 1; i >= 0; i--) {
+            String hop = hops[i].trim();
+            if (!isIpLiteral(hop)) {
+                break;
+            }
+            client = hop;
+            if (!isTrustedProxy(hop)) {
+                break;
+            }
+        }
+        return client;
+    }
+
+    private boolean isTrustedProxy(String address) {
+        for (IpAddressMatcher proxy : trustedProxies) {
+            if (proxy.matches(address)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Keeps hostnames and junk in a forged header from reaching {@link IpAddressMatcher}, which
+     * would resolve them.
+     */
+    private static boolean isIpLiteral(String address) {
+        if (address.isEmpty() || address.length() > 45) {
+            return false;
+        }
+        for (int i = 0; i < address.length(); i++) {
+            char c = address.charAt(i);
+            if (Character.digit(c, 16) < 0 && c != '.' && c != ':') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String extractUsername(byte[] body) {
+        if (body.length == 0) {
+            return null;
+        }
+        try {
+            JsonNode username = objectMapper.readTree(body).get("username");
+            if (username == null || !username.isTextual() || username.asText().isBlank()) {
+                return null;
+            }
+            return username.asText().trim().toLowerCase(Locale.ROOT);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static void tooLarge(HttpServletResponse response) throws IOException {
+        response.setStatus(HttpStatus.PAYLOAD_TOO_LARGE.value());
+        response.setContentType("text/plain;charset=UTF-8");
+        response.getOutputStream().write("Запит занадто великий".getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void reject(HttpServletResponse response, long waitNanos) throws IOException {
+        long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType("text/plain;charset=UTF-8");
+        response.getOutputStream().write("Забагато спроб, спробуйте пізніше".getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -1,11 +1,16 @@
 package com.example.cafe.filter;
 
+import com.example.cafe.security.TokenRevocationList;
+import com.example.cafe.security.UserPrincipal;
+import com.example.cafe.security.UserSecurityVersions;
 import com.example.cafe.util.JwtUtil;
+import com.example.cafe.util.VerifiedToken;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -15,6 +20,8 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 import org.springframework.security.core.GrantedAuthority;
 import jakarta.servlet.http.Cookie;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.util.List;
 import java.io.IOException;
@@ -22,12 +29,23 @@ import java.io.IOException;
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
+    private static final Logger logger = LoggerFactory.getLogger(JwtAuthenticationFilter.class);
+
     @Autowired
     private JwtUtil jwtUtil;
 
     @Autowired
     private UserDetailsService userDetailsService;
 
+    @Autowired
+    private UserSecurityVersions userSecurityVersions;
+
+    @Autowired
+    private TokenRevocationList tokenRevocationList;
+
+    @Value("${jwt.claims-only-auth:false}")
+    private boolean claimsOnlyAuth;
+
     @Override
     protected void doFilterInternal(HttpServletRequest request,
                                     HttpServletResponse response,
@@ -37,41 +55,67 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         if (jwt != null) {
             try {
-                String username = jwtUtil.getUsernameFromToken(jwt);
+                VerifiedToken token = jwtUtil.verify(jwt);
+                String username = token.getSubject();
 
                 if (username != null) {
-                    UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+                    UserDetails userDetails = resolvePrincipal(token);
 
-                    boolean isValid = jwtUtil.validateToken(jwt, userDetails);
+                    boolean isValid = userDetails != null
+                            && username.equals(userDetails.getUsername())
+                            && userDetails.isEnabled();
 
-                    System.out.println("Username: " + username);
-                    System.out.println("UserDetails username: " + userDetails.getUsername());
-                    System.out.println("Token valid: " + isValid);
+                    logger.debug("Username: {}, token valid: {}", username, isValid);
 
                     if (isValid && SecurityContextHolder.getContext().getAuthentication() == null) {
-                        List<GrantedAuthority> authorities = jwtUtil.getAuthoritiesFromToken(jwt);
+                        List<GrantedAuthority> authorities = token.getAuthorities();
 
                         UsernamePasswordAuthenticationToken authToken =
-                                new UsernamePasswordAuthenticationToken(userDetails, null, authorities);
+                                new UsernamePasswordAuthenticationToken(userDetails, token, authorities);
                         authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
 
                         SecurityContextHolder.getContext().setAuthentication(authToken);
 
-                        System.out.println("Authenticated user: " + username + " with roles: " + authorities);
+                        logger.debug("Authenticated user: {} with roles: {}", username, authorities);
                     } else {
-                        System.out.println("User already authenticated or token not valid");
+                        logger.debug("User already authenticated or token not valid");
                     }
                 }
             } catch (Exception e) {
-                System.out.println("JWT error: " + e.getMessage());
+                logger.debug("JWT error: {}", e.getMessage());
             }
         } else {
-            System.out.println("No JWT found in request");
+            logger.trace("No JWT found in request");
         }
 
         filterChain.doFilter(request, response);
     }
 
+    private UserDetails resolvePrincipal(VerifiedToken token) {
+        if (tokenRevocationList.isRevoked(token.getTokenId())) {
+            logger.debug("Token of user '{}' has been revoked", token.getSubject());
+            return null;
+        }
+
+        if (token.getUserId() != null
+                && !userSecurityVersions.isCurrent(token.getUserId(), token.getSecurityVersion())) {
+            logger.debug("Token of user '{}' was issued before a security change", token.getSubject());
+            return null;
+        }
+
+        if (claimsOnlyAuth && token.getUserId() != null) {
+            return UserPrincipal.fromToken(token);
+        }
+
+        UserDetails userDetails = userDetailsService.loadUserByUsername(token.getSubject());
+        if (userDetails instanceof UserPrincipal principal
+                && principal.getSecurityVersion() > token.getSecurityVersion()) {
+            logger.debug("Token of user '{}' was issued before a security change", token.getSubject());
+            return null;
+        }
+        return userDetails;
+    }
+
     private String getJwtFromRequest(HttpServletRequest request) {
         String bearerToken = request.getHeader("Authorization");
         if (bearerToken != null && bearerToken.startsWith("Bearer ")) {
@@ -0,0 +1,92 @@
+package com.example.cafe.filter;
+
+import com.example.cafe.config.ReplicaRoutingDataSource;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseCookie;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Carries read-your-writes across instances. Sessions are stateless and nothing pins a client to
+ * one instance, so the writer memory in {@link ReplicaRoutingDataSource} alone would let a client
+ * read from a lagging replica right after writing through another instance. Every request that
+ * may write gets a short-lived cookie with the time of the write; while it is younger than
+ * {@code database.replicas.read-your-writes}, the client's requests read from the primary on
+ * whichever instance serves them. Instance clocks are assumed to be in sync well within that window.
+ */
+@Component
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    public static final String LAST_WRITE_COOKIE = "last_write";
+
+    private final boolean enabled;
+    private final long windowMs;
+
+    public ReadYourWritesFilter(@Value("${database.replicas.urls:}") List<String> replicaUrls,
+                                @Value("${database.replicas.read-your-writes:5s}") Duration readYourWrites) {
+        this.enabled = replicaUrls.stream().anyMatch(url -> !url.isBlank());
+        this.windowMs = readYourWrites.toMillis();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+
+        long now = System.currentTimeMillis();
+        if (isWrite(request)) {
+            // Set up front: the response may be committed by the time the write is done.
+            response.addHeader(HttpHeaders.SET_COOKIE, ResponseCookie.from(LAST_WRITE_COOKIE, String.valueOf(now))
+                    .httpOnly(true)
+                    .path("/")
+                    .maxAge(Duration.ofMillis(windowMs))
+                    .build()
+                    .toString());
+        } else if (wroteRecently(request, now)) {
+            request.setAttribute(ReplicaRoutingDataSource.RECENT_WRITE_ATTRIBUTE, Boolean.TRUE);
+        }
+
+        filterChain.doFilter(request, response);
+    }
+
+    private boolean wroteRecently(HttpServletRequest request, long now) {
+        if (request.getCookies() == null) {
+            return false;
+        }
+        for (Cookie cookie : request.getCookies()) {
+            if (LAST_WRITE_COOKIE.equals(cookie.getName())) {
+                try {
+                    // Allows for clock skew between instances, but not for a far-future timestamp
+                    // that would keep the client on the primary for good.
+                    long age = now - Long.parseLong(cookie.getValue());
+                    return age >= -windowMs && age < windowMs;
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean isWrite(HttpServletRequest request) {
+        return switch (request.getMethod()) {
+            case "GET", "HEAD", "OPTIONS", "TRACE" -> false;
+            default -> true;
+        };
+    }
+}
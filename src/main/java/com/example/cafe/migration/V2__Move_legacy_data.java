@@ -0,0 +1,100 @@
+package com.example.cafe.migration;
+
+import com.example.cafe.model.Role;
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.sql.ResultSet;
+
+/**
+ * Moves data out of tables that the entity model no longer maps and moves id sequences past ids
+ * issued by the old identity columns. Every step is a no-op on a database created by the baseline.
+ */
+public class V2__Move_legacy_data extends BaseJavaMigration {
+
+    private static final Logger logger = LoggerFactory.getLogger(V2__Move_legacy_data.class);
+
+    private static final int ALLOCATION_SIZE = 50;
+
+    @Override
+    public void migrate(Context context) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(new SingleConnectionDataSource(context.getConnection(), true));
+        migrateUserRoles(jdbcTemplate);
+        migrateOrderItems(jdbcTemplate);
+        alignSequence(jdbcTemplate, "orders", "orders_seq");
+        alignSequence(jdbcTemplate, "menu_item", "menu_item_seq");
+        alignSequence(jdbcTemplate, "order_line", "order_line_seq");
+    }
+
+    private void migrateUserRoles(JdbcTemplate jdbcTemplate) {
+        if (!tableExists(jdbcTemplate, "user_roles")) {
+            return;
+        }
+
+        StringBuilder bit = new StringBuilder("case r.role");
+        for (Role role : Role.values()) {
+            bit.append(" when '").append(role.getAuthority()).append("' then ").append(role.getMask());
+        }
+        bit.append(" else 0 end");
+
+        int updated = jdbcTemplate.update(
+                "update users set role_mask = (select coalesce(sum(" + bit + "), 0) from user_roles r"
+                        + " where r.user_id = users.id) where role_mask = 0");
+        jdbcTemplate.execute("drop table user_roles");
+        logger.info("Ролі {} користувачів перенесено з user_roles у users.role_mask", updated);
+    }
+
+    private void migrateOrderItems(JdbcTemplate jdbcTemplate) {
+        if (!tableExists(jdbcTemplate, "order_items")) {
+            return;
+        }
+
+        // Lines whose menu item is gone are kept, with an empty name and a zero price, so that no
+        // order loses part of its history.
+        Integer orphaned = jdbcTemplate.queryForObject(
+                "select count(*) from order_items oi where not exists (select 1 from menu_item m where m.id = oi.menu_item_id)",
+                Integer.class);
+        if (orphaned != null && orphaned > 0) {
+            logger.warn("{} рядків order_items посилаються на видалені позиції меню; перенесено без назви та ціни", orphaned);
+        }
+
+        int inserted = jdbcTemplate.update(
+                "insert into order_line (id, order_id, menu_item_id, item_name, unit_price, quantity)"
+                        + " select nextval('order_line_seq'), g.order_id, g.menu_item_id, g.item_name, g.unit_price, g.quantity"
+                        + " from (select oi.order_id, oi.menu_item_id, coalesce(m.name, '') as item_name,"
+                        + " coalesce(m.price, 0) as unit_price, count(*) as quantity"
+                        + " from order_items oi left join menu_item m on m.id = oi.menu_item_id"
+                        + " where not exists (select 1 from order_line l where l.order_id = oi.order_id)"
+                        + " group by oi.order_id, oi.menu_item_id, m.name, m.price) g");
+        jdbcTemplate.execute("drop table order_items");
+        logger.info("Перенесено {} рядків замовлень з order_items у order_line", inserted);
+    }
+
+    /**
+     * Tables that used identity columns already hold ids a freshly created sequence would hand out
+     * again. Hibernate's pooled optimizer uses the block of {@value #ALLOCATION_SIZE} ids ending at
+     * the fetched value, so the sequence has to restart far enough past the current maximum.
+     */
+    private void alignSequence(JdbcTemplate jdbcTemplate, String table, String sequence) {
+        Long maxId = jdbcTemplate.queryForObject("select coalesce(max(id), 0) from " + table, Long.class);
+        Long next = jdbcTemplate.queryForObject("select nextval('" + sequence + "')", Long.class);
+        if (maxId != null && maxId > 0 && next != null && next - ALLOCATION_SIZE < maxId) {
+            long restart = maxId + ALLOCATION_SIZE;
+            jdbcTemplate.execute("alter sequence " + sequence + " restart with " + restart);
+            logger.info("Послідовність {} зсунуто до {} (максимальний id у {} = {})", sequence, restart, table, maxId);
+        }
+    }
+
+    private boolean tableExists(JdbcTemplate jdbcTemplate, String table) {
+        return Boolean.TRUE.equals(jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+            try (ResultSet tables = connection.getMetaData().getTables(null, null, table, new String[]{"TABLE"})) {
+                return tables.next();
+            }
+        }));
+    }
+}
@@ -2,16 +2,23 @@ package com.example.cafe.model;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 import java.util.List;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "cafe")
 @Getter
 @Setter
 @NoArgsConstructor
 @AllArgsConstructor
-
+// Orders point at their cafe through an unloaded reference; its proxy fields are not part of the JSON.
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class Cafe {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -31,4 +38,16 @@ public class Cafe {
     @ManyToOne
     @JoinColumn(name = "manager_id")
     private User manager;
+
+    @Version
+    @JsonIgnore
+    private Long version;
+
+    /**
+     * Moved on by {@code CafeRepository.incrementMenuVersions} whenever the menu changes; never
+     * written through the entity, so saving a cafe cannot roll it back.
+     */
+    @Column(name = "menu_version", insertable = false, updatable = false)
+    @JsonIgnore
+    private Long menuVersion;
 }
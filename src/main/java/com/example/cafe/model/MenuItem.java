@@ -2,15 +2,21 @@ package com.example.cafe.model;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "menu-item")
 @Getter
 @Setter
 @NoArgsConstructor
 @AllArgsConstructor
 public class MenuItem {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "menu_item_seq")
+    @SequenceGenerator(name = "menu_item_seq", sequenceName = "menu_item_seq", allocationSize = 50)
     private Long id;
 
     private String name;
@@ -20,4 +26,8 @@ public class MenuItem {
     @ManyToOne
     @JoinColumn(name = "cafe_id")
     private Cafe cafe;
+
+    @Version
+    @JsonIgnore
+    private Long version;
 }
\ No newline at end of file
@@ -2,9 +2,12 @@ package com.example.cafe.model;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.CreationTimestamp;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
 import com.fasterxml.jackson.annotation.JsonProperty;
-import java.util.Collections;
 import java.util.stream.Collectors;
 
 @Entity
@@ -15,31 +18,49 @@ import java.util.stream.Collectors;
 @Table(name = "orders")
 public class Order {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "orders_seq")
+    @SequenceGenerator(name = "orders_seq", sequenceName = "orders_seq", allocationSize = 50)
     private Long id;
     private String customerName;
     private double totalAmount;
 
+    @CreationTimestamp
+    @Column(name = "created_at", updatable = false)
+    private Instant createdAt;
+
     @ManyToOne
     @JoinColumn(name = "cafe_id")
     private Cafe cafe;
 
-    @ManyToMany
-    @JoinTable(
-            name = "order_items",
-            joinColumns = @JoinColumn(name = "order_id"),
-            inverseJoinColumns = @JoinColumn(name = "menu_item_id")
-    )
+    @OneToMany(mappedBy = "order", cascade = CascadeType.ALL, orphanRemoval = true)
+    @OrderBy("id")
+    @BatchSize(size = 100)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private List<OrderLine> lines = new ArrayList<>();
+
+    /**
+     * Menu items requested by the client; only read when the order is placed and turned into
+     * {@link #lines}. A repeated id means a quantity greater than one.
+     */
+    @Transient
+    @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
     private List<MenuItem> items;
 
     @JsonProperty("itemNames")
     public List<String> getItemNames() {
-        if (items == null) return Collections.emptyList();
-        return items.stream()
-                .map(MenuItem::getName)
+        return lines.stream()
+                .map(line -> OrderLine.label(line.getItemName(), line.getQuantity()))
                 .collect(Collectors.toList());
     }
 
+    public void addLine(MenuItem item, int quantity) {
+        addLine(item.getId(), item.getName(), item.getPrice(), quantity);
+    }
+
+    public void addLine(Long menuItemId, String itemName, double unitPrice, int quantity) {
+        lines.add(new OrderLine(null, this, menuItemId, itemName, unitPrice, quantity));
+    }
+
     @ManyToOne(fetch = FetchType.EAGER)
     @JoinColumn(name = "user_id")
     private User user;
@@ -0,0 +1,51 @@
+package com.example.cafe.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * One line of an order. Name and unit price are copied from the menu item when the order is
+ * placed, so reading an order never goes back to the catalog and later price changes do not
+ * alter past orders.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "order_line")
+public class OrderLine {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_line_seq")
+    @SequenceGenerator(name = "order_line_seq", sequenceName = "order_line_seq", allocationSize = 50)
+    private Long id;
+
+    @JsonIgnore
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "order_id")
+    private Order order;
+
+    @Column(name = "menu_item_id", nullable = false)
+    private Long menuItemId;
+
+    @Column(name = "item_name", nullable = false)
+    private String itemName;
+
+    @Column(name = "unit_price", nullable = false)
+    private double unitPrice;
+
+    @Column(nullable = false)
+    private int quantity;
+
+    public double getLineTotal() {
+        return unitPrice * quantity;
+    }
+
+    /**
+     * How a line is shown in order lists: the item name, followed by "xN" when N is above one.
+     */
+    public static String label(String itemName, int quantity) {
+        return quantity > 1 ? itemName + " x" + quantity : itemName;
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.cafe.model;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * The fixed set of roles. A user's roles are stored as a bitmask of {@link #getMask()} values
+ * in {@code users.role_mask}.
+ */
+public enum Role {
+    ADMIN("ROLE_ADMIN"),
+    MANAGER("ROLE_MANAGER"),
+    CUSTOMER("ROLE_CUSTOMER");
+
+    public static final int ALL_MASK = (1 << values().length) - 1;
+
+    private static final Role[] ROLES = values();
+    private static final Set<String>[] NAMES_BY_MASK = buildNames();
+
+    private final String authority;
+
+    Role(String authority) {
+        this.authority = authority;
+    }
+
+    public String getAuthority() {
+        return authority;
+    }
+
+    public int getMask() {
+        return 1 << ordinal();
+    }
+
+    public boolean isIn(int mask) {
+        return (mask & getMask()) != 0;
+    }
+
+    public static Role fromAuthority(String authority) {
+        for (Role role : ROLES) {
+            if (role.authority.equals(authority)) {
+                return role;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Unknown role names are ignored.
+     */
+    public static int toMask(Collection<String> authorities) {
+        int mask = 0;
+        if (authorities != null) {
+            for (String authority : authorities) {
+                Role role = fromAuthority(authority);
+                if (role != null) {
+                    mask |= role.getMask();
+                }
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Shared, unmodifiable role names for the mask, in declaration order.
+     */
+    public static Set<String> names(int mask) {
+        return NAMES_BY_MASK[mask & ALL_MASK];
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Set<String>[] buildNames() {
+        Set<String>[] names = new Set[ALL_MASK + 1];
+        for (int mask = 0; mask <= ALL_MASK; mask++) {
+            Set<String> set = new LinkedHashSet<>();
+            for (Role role : ROLES) {
+                if (role.isIn(mask)) {
+                    set.add(role.authority);
+                }
+            }
+            names[mask] = Collections.unmodifiableSet(set);
+        }
+        return names;
+    }
+}
@@ -2,9 +2,14 @@ package com.example.cafe.model;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import java.util.Set;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "user")
 @Table(name = "users")
 @Data
 @NoArgsConstructor
@@ -24,15 +29,26 @@ public class User {
     @Column(nullable = false)
     private Boolean enabled = true;
 
-    @ElementCollection(fetch = FetchType.EAGER)
-    @CollectionTable(name = "user_roles", joinColumns = @JoinColumn(name = "user_id"))
-    @Column(name = "role")
-    private Set<String> roles;
+    @JsonIgnore
+    @Column(name = "role_mask", nullable = false, columnDefinition = "integer default 0")
+    private int roleMask;
+
+    @JsonIgnore
+    @Column(name = "security_version", nullable = false, columnDefinition = "integer default 0")
+    private Integer securityVersion = 0;
 
     public User(String username, String password, Set<String> roles) {
         this.username = username;
         this.password = password;
-        this.roles = roles;
+        this.roleMask = Role.toMask(roles);
         this.enabled = true;
     }
+
+    public Set<String> getRoles() {
+        return Role.names(roleMask);
+    }
+
+    public void setRoles(Set<String> roles) {
+        this.roleMask = Role.toMask(roles);
+    }
 }
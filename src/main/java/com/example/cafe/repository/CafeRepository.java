@@ -1,9 +1,20 @@
 package com.example.cafe.repository;
 
+import com.example.cafe.dto.CafeListVersion;
+import com.example.cafe.dto.CafeSummary;
+import com.example.cafe.dto.MenuVersion;
 import com.example.cafe.model.Cafe;
 import com.example.cafe.model.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -11,5 +22,37 @@ import java.util.Optional;
 public interface CafeRepository extends JpaRepository<Cafe, Long> {
     Optional<Cafe> findByName(String name);
     boolean existsByManager(User manager);
+    boolean existsByIdAndManagerId(Long id, Long managerId);
+
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "cafes-by-manager")})
     List<Cafe> findByManager(User manager);
+
+    @Query("select c.id from Cafe c where c.manager.id = :managerId")
+    List<Long> findIdsByManagerId(@Param("managerId") Long managerId);
+
+    @Query("select c.id, c.manager.id from Cafe c where c.manager is not null")
+    List<Object[]> findCafeManagerIds();
+
+    @Transactional(readOnly = true)
+    @Query("select new com.example.cafe.dto.CafeSummary(c.id, c.name, c.address, c.city) from Cafe c order by c.id")
+    List<CafeSummary> findAllSummaries();
+
+    @Transactional(readOnly = true)
+    @Query("select new com.example.cafe.dto.CafeListVersion(count(c), coalesce(sum(c.version), 0L), coalesce(max(c.id), 0L))"
+            + " from Cafe c")
+    CafeListVersion findListVersion();
+
+    @Transactional(readOnly = true)
+    @Query("select new com.example.cafe.dto.MenuVersion(c.id, c.version, c.menuVersion) from Cafe c where c.id = :id")
+    Optional<MenuVersion> findMenuVersion(@Param("id") Long id);
+
+    /**
+     * A bulk update, so the cafes' own {@code @Version} stays as it is. Hibernate drops the whole
+     * {@code cafe} cache region for it.
+     */
+    @Modifying
+    @Transactional
+    @Query("update Cafe c set c.menuVersion = c.menuVersion + 1 where c.id in :ids")
+    int incrementMenuVersions(@Param("ids") Collection<Long> ids);
 }
@@ -1,13 +1,47 @@
 package com.example.cafe.repository;
 
+import com.example.cafe.dto.MenuItemView;
+import com.example.cafe.dto.OrderableItem;
 import com.example.cafe.model.MenuItem;
 import com.example.cafe.model.Cafe;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface MenuItemRepository extends JpaRepository<MenuItem, Long> {
-    List<MenuItem> findByCafeId(Long cafeId);
+    /**
+     * Cached in the query cache under the menu version as well as the cafe, so a version read from
+     * the database never gets a result cached before a menu change made on another instance.
+     */
+    @Transactional(readOnly = true)
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = "menu-items-by-cafe")})
+    @Query("select m from MenuItem m where m.cafe.id = :cafeId and m.cafe.menuVersion = :menuVersion order by m.id")
+    List<MenuItem> findByCafeId(@Param("cafeId") Long cafeId, @Param("menuVersion") Long menuVersion);
     List<MenuItem> findByCafe(Cafe cafe);
+
+    @Transactional(readOnly = true)
+    @Query("select new com.example.cafe.dto.MenuItemView(m.id, m.name, m.price, m.category, m.cafe.id)"
+            + " from MenuItem m where m.cafe.id = :cafeId order by m.id")
+    List<MenuItemView> findViewsByCafeId(@Param("cafeId") Long cafeId);
+
+    /**
+     * Items of the given cafe among {@code ids}; ids that are unknown or belong to another cafe are
+     * simply missing from the result.
+     */
+    @Query("select new com.example.cafe.dto.OrderableItem(m.id, m.name, m.price, m.cafe.id)"
+            + " from MenuItem m where m.id in :ids and m.cafe.id = :cafeId")
+    List<OrderableItem> findOrderable(@Param("ids") Collection<Long> ids, @Param("cafeId") Long cafeId);
+
+    @Query("select new com.example.cafe.dto.OrderableItem(m.id, m.name, m.price, m.cafe.id)"
+            + " from MenuItem m where m.cafe is not null and m.price is not null")
+    List<OrderableItem> findAllOrderable();
 }
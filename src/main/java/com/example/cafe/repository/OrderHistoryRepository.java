@@ -0,0 +1,70 @@
+package com.example.cafe.repository;
+
+import com.example.cafe.dto.OrderHistoryRow;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Array;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Reads a customer's order history in one statement, with item names aggregated by the database,
+ * and hands rows over one at a time instead of building entities or a result list. PgJDBC only
+ * fetches rows in batches inside a transaction and with a fetch size; otherwise it reads the whole
+ * result before the first row is handed over.
+ */
+@Repository
+public class OrderHistoryRepository {
+
+    private static final String HISTORY_SQL = """
+            select o.id, c.name as cafe_name, o.total_amount,
+                   array_agg(case when l.quantity > 1 then l.item_name || ' x' || l.quantity else l.item_name end
+                             order by l.id) filter (where l.id is not null) as item_names
+            from orders o
+            left join cafe c on c.id = o.cafe_id
+            left join order_line l on l.order_id = o.id
+            where o.user_id = ?
+            group by o.id, c.name, o.total_amount
+            order by o.id""";
+
+    private static final int FETCH_SIZE = 100;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public OrderHistoryRepository(DataSource dataSource, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(FETCH_SIZE);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    public void forEachByUserId(Long userId, Consumer<OrderHistoryRow> consumer) {
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.query(HISTORY_SQL, rs -> {
+            consumer.accept(new OrderHistoryRow(
+                    rs.getLong("id"),
+                    rs.getString("cafe_name"),
+                    rs.getDouble("total_amount"),
+                    itemNames(rs)));
+        }, userId));
+    }
+
+    private static List<String> itemNames(ResultSet rs) throws SQLException {
+        Array array = rs.getArray("item_names");
+        if (array == null) {
+            return List.of();
+        }
+        try {
+            return Arrays.stream((Object[]) array.getArray()).map(String::valueOf).toList();
+        } finally {
+            array.free();
+        }
+    }
+}
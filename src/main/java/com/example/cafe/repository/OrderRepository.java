@@ -2,13 +2,26 @@ package com.example.cafe.repository;
 
 import com.example.cafe.model.Order;
 import com.example.cafe.model.User;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.stereotype.Repository;
 import java.util.List;
 
 @Repository
-public interface OrderRepository extends JpaRepository<Order, Long> {
+public interface OrderRepository extends JpaRepository<Order, Long>, JpaSpecificationExecutor<Order> {
     List<Order> findByCustomerName(String customerName);
     List<Order> findByUser(User user);
+
+    @EntityGraph(attributePaths = {"cafe", "lines"})
     List<Order> findByUserId(Long userId);
+
+    /**
+     * Keyset page: the newest {@code limit} orders matching {@code spec}, without a count query.
+     */
+    default List<Order> findPage(Specification<Order> spec, int limit) {
+        return findBy(spec, query -> query.sortBy(Sort.by(Sort.Direction.DESC, "id")).limit(limit).all());
+    }
 }
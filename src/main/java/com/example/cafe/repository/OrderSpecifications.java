@@ -0,0 +1,51 @@
+package com.example.cafe.repository;
+
+import com.example.cafe.model.Order;
+import jakarta.persistence.criteria.JoinType;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.Collection;
+
+/**
+ * Filters for order queries. Every factory returns {@code null} when its argument is absent, so
+ * optional filters can be chained with {@link Specification#and} directly.
+ */
+public final class OrderSpecifications {
+
+    private OrderSpecifications() {
+    }
+
+    public static Specification<Order> inCafes(Collection<Long> cafeIds) {
+        return (root, query, cb) -> root.get("cafe").get("id").in(cafeIds);
+    }
+
+    public static Specification<Order> idBefore(Long cursor) {
+        return cursor == null ? null : (root, query, cb) -> cb.lessThan(root.get("id"), cursor);
+    }
+
+    public static Specification<Order> customer(String username) {
+        return username == null || username.isBlank() ? null
+                : (root, query, cb) -> cb.equal(root.join("user", JoinType.INNER).get("username"), username.trim());
+    }
+
+    public static Specification<Order> totalAtLeast(Double min) {
+        return min == null ? null : (root, query, cb) -> cb.greaterThanOrEqualTo(root.get("totalAmount"), min);
+    }
+
+    public static Specification<Order> totalAtMost(Double max) {
+        return max == null ? null : (root, query, cb) -> cb.lessThanOrEqualTo(root.get("totalAmount"), max);
+    }
+
+    /**
+     * Loads cafe and customer in the same select instead of one query per order.
+     */
+    public static Specification<Order> fetchCafeAndUser() {
+        return (root, query, cb) -> {
+            if (query != null && Order.class.equals(query.getResultType())) {
+                root.fetch("cafe", JoinType.LEFT);
+                root.fetch("user", JoinType.LEFT);
+            }
+            return null;
+        };
+    }
+}
@@ -2,9 +2,17 @@ package com.example.cafe.repository;
 
 import com.example.cafe.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import java.util.List;
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByUsername(String username);
     boolean existsByUsername(String username);
+
+    @Query("select u.id, u.securityVersion from User u where u.securityVersion > 0")
+    List<Object[]> findBumpedSecurityVersions();
+
+    @Query("select u.username from User u")
+    List<String> findAllUsernames();
 }
@@ -0,0 +1,120 @@
+package com.example.cafe.security;
+
+import com.example.cafe.model.Cafe;
+import com.example.cafe.repository.CafeRepository;
+import com.example.cafe.util.LongHashSet;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Which manager owns which cafe, kept in memory so that manager requests can be authorized
+ * without loading the manager and the cafe. Readers never lock: every change publishes a new
+ * copy of the affected manager's set. Kept up to date by {@code CafeService} for writes made on
+ * this instance, and reloaded from the database on a schedule for writes made on the others, so a
+ * grant may outlive its cafe's reassignment elsewhere by at most one reload interval. A cafe the
+ * index does not know for a manager is looked up in the database before the request is refused.
+ */
+@Component
+public class CafeOwnershipIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(CafeOwnershipIndex.class);
+
+    private static final LongHashSet NONE = new LongHashSet(0);
+
+    private final CafeRepository cafeRepository;
+    private volatile Map<Long, LongHashSet> cafesByManager = new ConcurrentHashMap<>();
+    private volatile Map<Long, Long> managerByCafe = new ConcurrentHashMap<>();
+
+    public CafeOwnershipIndex(CafeRepository cafeRepository) {
+        this.cafeRepository = cafeRepository;
+    }
+
+    @PostConstruct
+    public synchronized void load() {
+        Map<Long, LongHashSet> byManager = new ConcurrentHashMap<>();
+        Map<Long, Long> byCafe = new ConcurrentHashMap<>();
+        for (Object[] row : cafeRepository.findCafeManagerIds()) {
+            Long cafeId = (Long) row[0];
+            Long managerId = (Long) row[1];
+            byCafe.put(cafeId, managerId);
+            byManager.computeIfAbsent(managerId, id -> new LongHashSet()).add(cafeId);
+        }
+        cafesByManager = byManager;
+        managerByCafe = byCafe;
+        logger.debug("Завантажено {} прив'язок кав'ярень до менеджерів", byCafe.size());
+    }
+
+    @Scheduled(fixedDelayString = "${security.cafe-ownership.reload-interval:30000}",
+            initialDelayString = "${security.cafe-ownership.reload-interval:30000}")
+    public void reload() {
+        load();
+    }
+
+    public boolean isManagedBy(Long managerId, Long cafeId) {
+        if (managerId == null || cafeId == null) {
+            return false;
+        }
+        if (cafesByManager.getOrDefault(managerId, NONE).contains(cafeId)) {
+            return true;
+        }
+        if (!cafeRepository.existsByIdAndManagerId(cafeId, managerId)) {
+            return false;
+        }
+        put(cafeId, managerId);
+        return true;
+    }
+
+    /**
+     * The returned set must not be modified. A manager the index knows no cafes of is looked up in
+     * the database, so one assigned on another instance is not answered with nothing until the next
+     * reload; cafes added to a manager who already has some show up by that reload.
+     */
+    public LongHashSet cafeIdsOf(Long managerId) {
+        if (managerId == null) {
+            return NONE;
+        }
+        LongHashSet cafes = cafesByManager.getOrDefault(managerId, NONE);
+        if (!cafes.isEmpty()) {
+            return cafes;
+        }
+        for (Long cafeId : cafeRepository.findIdsByManagerId(managerId)) {
+            put(cafeId, managerId);
+        }
+        return cafesByManager.getOrDefault(managerId, NONE);
+    }
+
+    public void update(Cafe cafe) {
+        put(cafe.getId(), cafe.getManager() != null ? cafe.getManager().getId() : null);
+    }
+
+    public void remove(Long cafeId) {
+        put(cafeId, null);
+    }
+
+    private synchronized void put(Long cafeId, Long managerId) {
+        if (cafeId == null) {
+            return;
+        }
+        Long previous = managerId != null ? managerByCafe.put(cafeId, managerId) : managerByCafe.remove(cafeId);
+        if (previous != null && !previous.equals(managerId)) {
+            LongHashSet cafes = new LongHashSet(cafesByManager.getOrDefault(previous, NONE));
+            cafes.remove(cafeId);
+            if (cafes.isEmpty()) {
+                cafesByManager.remove(previous);
+            } else {
+                cafesByManager.put(previous, cafes);
+            }
+        }
+        if (managerId != null && !managerId.equals(previous)) {
+            LongHashSet cafes = new LongHashSet(cafesByManager.getOrDefault(managerId, NONE));
+            cafes.add(cafeId);
+            cafesByManager.put(managerId, cafes);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.cafe.security;
+
+import com.example.cafe.model.Role;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Preallocated authority lists for every role mask, shared by all principals and tokens.
+ */
+public final class RoleAuthorities {
+
+    private static final List<GrantedAuthority>[] AUTHORITIES_BY_MASK = build();
+
+    private RoleAuthorities() {
+    }
+
+    public static List<GrantedAuthority> forMask(int mask) {
+        return AUTHORITIES_BY_MASK[mask & Role.ALL_MASK];
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<GrantedAuthority>[] build() {
+        GrantedAuthority[] single = new GrantedAuthority[Role.values().length];
+        for (Role role : Role.values()) {
+            single[role.ordinal()] = new SimpleGrantedAuthority(role.getAuthority());
+        }
+
+        List<GrantedAuthority>[] lists = new List[Role.ALL_MASK + 1];
+        for (int mask = 0; mask <= Role.ALL_MASK; mask++) {
+            List<GrantedAuthority> list = new ArrayList<>();
+            for (Role role : Role.values()) {
+                if (role.isIn(mask)) {
+                    list.add(single[role.ordinal()]);
+                }
+            }
+            lists[mask] = List.copyOf(list);
+        }
+        return lists;
+    }
+}
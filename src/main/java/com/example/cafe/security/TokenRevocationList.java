@@ -0,0 +1,60 @@
+package com.example.cafe.security;
+
+import com.example.cafe.util.ConcurrentBloomFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Revoked access token ids (jti) until their expiry. A Bloom filter answers the common
+ * "not revoked" case without touching the exact set; both are pruned as tokens expire.
+ */
+@Component
+public class TokenRevocationList {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenRevocationList.class);
+
+    private static final int BLOOM_BITS = 1 << 20;
+    private static final int BLOOM_HASHES = 4;
+
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>();
+    private volatile ConcurrentBloomFilter bloom = new ConcurrentBloomFilter(BLOOM_BITS, BLOOM_HASHES);
+
+    public boolean isRevoked(String tokenId) {
+        if (tokenId == null || !bloom.mightContain(tokenId)) {
+            return false;
+        }
+        return revoked.containsKey(tokenId);
+    }
+
+    public synchronized void revoke(String tokenId, long expiresAtMillis) {
+        if (tokenId == null || expiresAtMillis <= System.currentTimeMillis()) {
+            return;
+        }
+        revoked.put(tokenId, expiresAtMillis);
+        bloom.add(tokenId);
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.revocation-prune-interval:60000}")
+    public synchronized void prune() {
+        long now = System.currentTimeMillis();
+        int before = revoked.size();
+        revoked.values().removeIf(expiresAt -> expiresAt <= now);
+
+        ConcurrentBloomFilter rebuilt = new ConcurrentBloomFilter(BLOOM_BITS, BLOOM_HASHES);
+        revoked.keySet().forEach(rebuilt::add);
+        bloom = rebuilt;
+
+        if (before != revoked.size()) {
+            logger.debug("Видалено {} прострочених відкликаних токенів", before - revoked.size());
+        }
+    }
+
+    public int size() {
+        return revoked.size();
+    }
+}
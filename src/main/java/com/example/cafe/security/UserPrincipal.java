@@ -0,0 +1,79 @@
+package com.example.cafe.security;
+
+import com.example.cafe.model.Role;
+import com.example.cafe.model.User;
+import com.example.cafe.util.VerifiedToken;
+import lombok.Getter;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.List;
+import java.util.Set;
+
+@Getter
+public class UserPrincipal implements UserDetails {
+
+    private final Long id;
+    private final String username;
+    private final String password;
+    private final boolean enabled;
+    private final int securityVersion;
+    private final int roleMask;
+
+    public UserPrincipal(Long id, String username, String password, boolean enabled,
+                         int securityVersion, int roleMask) {
+        this.id = id;
+        this.username = username;
+        this.password = password;
+        this.enabled = enabled;
+        this.securityVersion = securityVersion;
+        this.roleMask = roleMask;
+    }
+
+    public static UserPrincipal fromUser(User user) {
+        int securityVersion = user.getSecurityVersion() != null ? user.getSecurityVersion() : 0;
+        return new UserPrincipal(user.getId(), user.getUsername(), user.getPassword(),
+                Boolean.TRUE.equals(user.getEnabled()), securityVersion, user.getRoleMask());
+    }
+
+    public static UserPrincipal fromToken(VerifiedToken token) {
+        return new UserPrincipal(token.getUserId(), token.getSubject(), null, true,
+                token.getSecurityVersion(), token.getRoleMask());
+    }
+
+    /**
+     * Detached {@link User} carrying only what the signed claims know. Good enough to be used as a
+     * foreign key reference or a query parameter without loading the user row.
+     */
+    public User toUserReference() {
+        User user = new User();
+        user.setId(id);
+        user.setUsername(username);
+        user.setRoleMask(roleMask);
+        return user;
+    }
+
+    @Override
+    public List<GrantedAuthority> getAuthorities() {
+        return RoleAuthorities.forMask(roleMask);
+    }
+
+    public Set<String> getRoleNames() {
+        return Role.names(roleMask);
+    }
+
+    @Override
+    public boolean isAccountNonExpired() {
+        return true;
+    }
+
+    @Override
+    public boolean isAccountNonLocked() {
+        return true;
+    }
+
+    @Override
+    public boolean isCredentialsNonExpired() {
+        return true;
+    }
+}
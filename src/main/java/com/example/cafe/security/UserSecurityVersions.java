@@ -0,0 +1,76 @@
+package com.example.cafe.security;
+
+import com.example.cafe.model.User;
+import com.example.cafe.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory table of per-user security versions. Only users whose version was ever bumped
+ * (disabled, roles changed, deleted) are present, so the table stays small. A token is accepted
+ * in claims-only mode only if it was issued with the current version of its user.
+ * <p>
+ * Changes made on this instance apply at once. Those made on other instances arrive with the
+ * reload every {@code jwt.security-versions-reload-interval}, so a disabled user or one whose
+ * roles changed keeps passing there for at most that long. A deleted user has no row to reload:
+ * elsewhere their access tokens pass until they expire ({@code jwt.expiration}), and their refresh
+ * tokens are deleted with them, so no new ones are issued.
+ */
+@Component
+public class UserSecurityVersions {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserSecurityVersions.class);
+
+    private static final int REVOKED = Integer.MAX_VALUE;
+
+    private final UserRepository userRepository;
+    private final Map<Long, Integer> versions = new ConcurrentHashMap<>();
+
+    public UserSecurityVersions(UserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
+    /**
+     * Versions only grow, so entries are merged rather than replaced: a reload from a replica that
+     * lags behind a local change, or that no longer has a deleted user, cannot undo it.
+     */
+    @PostConstruct
+    public void load() {
+        for (Object[] row : userRepository.findBumpedSecurityVersions()) {
+            versions.merge((Long) row[0], (Integer) row[1], Math::max);
+        }
+        logger.debug("Завантажено {} версій безпеки користувачів", versions.size());
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.security-versions-reload-interval:30000}",
+            initialDelayString = "${jwt.security-versions-reload-interval:30000}")
+    public void reload() {
+        load();
+    }
+
+    public boolean isCurrent(Long userId, int tokenVersion) {
+        Integer current = versions.get(userId);
+        return current == null || tokenVersion >= current;
+    }
+
+    public void bump(User user) {
+        int current = user.getSecurityVersion() != null ? user.getSecurityVersion() : 0;
+        user.setSecurityVersion(current + 1);
+    }
+
+    public void publish(User savedUser) {
+        if (savedUser.getId() != null && savedUser.getSecurityVersion() != null) {
+            versions.merge(savedUser.getId(), savedUser.getSecurityVersion(), Math::max);
+        }
+    }
+
+    public void revokeAll(Long userId) {
+        versions.put(userId, REVOKED);
+    }
+}
@@ -0,0 +1,281 @@
+package com.example.cafe.service;
+
+import com.example.cafe.dto.AdminCafeSummary;
+import com.example.cafe.dto.AdminOrderRow;
+import com.example.cafe.dto.AdminUserRow;
+import com.example.cafe.dto.TablePage;
+import com.example.cafe.dto.TableRequest;
+import com.example.cafe.model.Cafe;
+import com.example.cafe.model.Order;
+import com.example.cafe.model.OrderLine;
+import com.example.cafe.model.Role;
+import com.example.cafe.model.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+/**
+ * Backs the admin tables: keyset pages over a whitelisted sort column (ties broken by id), simple
+ * filters, and a row count that comes from {@code pg_class.reltuples} unless an exact count is asked
+ * for. Rows are projections, never entities.
+ */
+@Service
+@Transactional(readOnly = true)
+public class AdminTableService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdminTableService.class);
+
+    private static final Set<String> USER_SORTS = Set.of("id", "username");
+    private static final Set<String> CAFE_SORTS = Set.of("id", "name", "city");
+    private static final Set<String> ORDER_SORTS = Set.of("id", "totalAmount");
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public AdminTableService(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public TablePage<AdminUserRow> users(TableRequest request, String role) {
+        Role roleFilter = role != null && !role.isBlank() ? Role.fromAuthority(role.trim()) : null;
+        if (role != null && !role.isBlank() && roleFilter == null) {
+            throw new IllegalArgumentException("Невідома роль: " + role);
+        }
+
+        return page(User.class, "users", USER_SORTS, request,
+                (root, cb) -> {
+                    List<Predicate> filters = new ArrayList<>();
+                    if (roleFilter != null) {
+                        // Every mask that has the role's bit set; keeps the filter a plain IN list.
+                        List<Integer> masks = IntStream.rangeClosed(1, Role.ALL_MASK)
+                                .filter(roleFilter::isIn).boxed().toList();
+                        filters.add(root.get("roleMask").in(masks));
+                    }
+                    return filters;
+                },
+                (root, cb) -> List.of(root.get("username"), root.get("enabled"), root.get("roleMask")),
+                rows -> rows.stream()
+                        .map(t -> new AdminUserRow(rowId(t), (String) t.get(0), (Boolean) t.get(1),
+                                Role.names((Integer) t.get(2))))
+                        .toList());
+    }
+
+    public TablePage<AdminCafeSummary> cafes(TableRequest request, String city) {
+        return page(Cafe.class, "cafe", CAFE_SORTS, request,
+                (root, cb) -> city != null && !city.isBlank()
+                        ? List.of(cb.equal(cb.lower(root.get("city")), city.trim().toLowerCase()))
+                        : List.of(),
+                (root, cb) -> {
+                    Join<Cafe, User> manager = root.join("manager", JoinType.LEFT);
+                    return List.of(root.get("name"), root.get("address"), root.get("city"),
+                            manager.get("id"), manager.get("username"));
+                },
+                rows -> rows.stream()
+                        .map(t -> new AdminCafeSummary(rowId(t), (String) t.get(0), (String) t.get(1),
+                                (String) t.get(2), (Long) t.get(3), (String) t.get(4)))
+                        .toList());
+    }
+
+    public TablePage<AdminOrderRow> orders(TableRequest request, Long cafeId, Double minTotal, Double maxTotal) {
+        return page(Order.class, "orders", ORDER_SORTS, request,
+                (root, cb) -> {
+                    List<Predicate> filters = new ArrayList<>();
+                    if (cafeId != null) {
+                        filters.add(cb.equal(root.get("cafe").get("id"), cafeId));
+                    }
+                    if (minTotal != null) {
+                        filters.add(cb.greaterThanOrEqualTo(root.get("totalAmount"), minTotal));
+                    }
+                    if (maxTotal != null) {
+                        filters.add(cb.lessThanOrEqualTo(root.get("totalAmount"), maxTotal));
+                    }
+                    return filters;
+                },
+                (root, cb) -> List.of(root.join("user", JoinType.LEFT).get("username"),
+                        root.join("cafe", JoinType.LEFT).get("name"), root.get("totalAmount")),
+                rows -> {
+                    Map<Long, List<String>> itemNames = itemNames(rows.stream().map(t -> rowId(t)).toList());
+                    return rows.stream()
+                            .map(t -> {
+                                Long id = rowId(t);
+                                return new AdminOrderRow(id, (String) t.get(0), (String) t.get(1), (Double) t.get(2),
+                                        itemNames.getOrDefault(id, List.of()));
+                            })
+                            .toList();
+                });
+    }
+
+    /**
+     * Selects {@code columns} followed by the sort key and the id, so the cursor can be built from the last row.
+     * Reads one row past the page size to know whether there is a next page.
+     */
+    private <T, R> TablePage<R> page(Class<T> entity, String table, Set<String> sortable, TableRequest request,
+                                     BiFunction<Root<T>, CriteriaBuilder, List<Predicate>> filters,
+                                     BiFunction<Root<T>, CriteriaBuilder, List<Selection<?>>> columns,
+                                     Function<List<Tuple>, List<R>> mapper) {
+        String sort = request.sort() == null || request.sort().isBlank() ? "id" : request.sort();
+        if (!sortable.contains(sort)) {
+            throw new IllegalArgumentException("Сортування за полем '" + sort + "' не підтримується");
+        }
+        boolean descending = request.descending();
+        int size = request.pageSize();
+
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<T> root = query.from(entity);
+        Path<Long> id = root.get("id");
+        Expression<? extends Comparable<?>> key = sortKey(root, sort, cb);
+
+        List<Selection<?>> selections = new ArrayList<>(columns.apply(root, cb));
+        selections.add(key);
+        selections.add(id);
+
+        List<Predicate> filterPredicates = filters.apply(root, cb);
+        List<Predicate> where = new ArrayList<>(filterPredicates);
+        if (request.after() != null && !request.after().isBlank()) {
+            where.add(after(cb, key, id, decodeCursor(request.after(), key.getJavaType()), descending));
+        }
+
+        query.multiselect(selections)
+                .where(where.toArray(Predicate[]::new))
+                .orderBy(descending ? cb.desc(key) : cb.asc(key), descending ? cb.desc(id) : cb.asc(id));
+
+        List<Tuple> rows = entityManager.createQuery(query).setMaxResults(size + 1).getResultList();
+        String nextCursor = null;
+        if (rows.size() > size) {
+            rows = rows.subList(0, size);
+            Tuple last = rows.get(size - 1);
+            nextCursor = encodeCursor(last.get(last.getElements().size() - 2), rowId(last));
+        }
+
+        boolean filtered = !filterPredicates.isEmpty();
+        Long total;
+        boolean exact = request.exactCount();
+        if (exact) {
+            total = count(entity, filters);
+        } else if (!filtered) {
+            total = estimate(table);
+            if (total == null) {
+                total = count(entity, filters);
+                exact = true;
+            }
+        } else {
+            total = null;
+        }
+
+        return new TablePage<>(mapper.apply(rows), nextCursor, total, exact);
+    }
+
+    private static Long rowId(Tuple row) {
+        return (Long) row.get(row.getElements().size() - 1);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Expression<? extends Comparable<?>> sortKey(Root<?> root, String attribute, CriteriaBuilder cb) {
+        Path path = root.get(attribute);
+        // Nullable text columns are compared as '' so that rows with nulls still take part in the keyset.
+        return String.class.equals(path.getJavaType()) ? cb.coalesce(path, "") : path;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Predicate after(CriteriaBuilder cb, Expression key, Path<Long> id, Object[] cursor, boolean descending) {
+        Comparable value = (Comparable) cursor[0];
+        Long lastId = (Long) cursor[1];
+        return descending
+                ? cb.or(cb.lessThan(key, value), cb.and(cb.equal(key, value), cb.lessThan(id, lastId)))
+                : cb.or(cb.greaterThan(key, value), cb.and(cb.equal(key, value), cb.greaterThan(id, lastId)));
+    }
+
+    private <T> long count(Class<T> entity, BiFunction<Root<T>, CriteriaBuilder, List<Predicate>> filters) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<T> root = query.from(entity);
+        query.select(cb.count(root)).where(filters.apply(root, cb).toArray(Predicate[]::new));
+        return entityManager.createQuery(query).getSingleResult();
+    }
+
+    /**
+     * Row estimate kept by PostgreSQL's statistics; {@code null} when the table was never analyzed
+     * or the database has no {@code pg_class}.
+     */
+    private Long estimate(String table) {
+        try {
+            Long estimate = jdbcTemplate.queryForObject(
+                    "select reltuples::bigint from pg_class where oid = to_regclass(?)", Long.class, table);
+            return estimate != null && estimate >= 0 ? estimate : null;
+        } catch (DataAccessException e) {
+            logger.debug("Оцінка кількості рядків для {} недоступна: {}", table, e.getMessage());
+            return null;
+        }
+    }
+
+    private Map<Long, List<String>> itemNames(List<Long> orderIds) {
+        Map<Long, List<String>> names = new LinkedHashMap<>();
+        if (orderIds.isEmpty()) {
+            return names;
+        }
+        List<Object[]> lines = entityManager.createQuery(
+                        "select l.order.id, l.itemName, l.quantity from OrderLine l where l.order.id in :ids order by l.id",
+                        Object[].class)
+                .setParameter("ids", orderIds)
+                .getResultList();
+        for (Object[] line : lines) {
+            names.computeIfAbsent((Long) line[0], k -> new ArrayList<>())
+                    .add(OrderLine.label((String) line[1], (Integer) line[2]));
+        }
+        return names;
+    }
+
+    private static String encodeCursor(Object key, Long id) {
+        String raw = id + ":" + key;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Object[] decodeCursor(String cursor, Class<?> keyType) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(':');
+            Long id = Long.valueOf(raw.substring(0, separator));
+            String value = raw.substring(separator + 1);
+            Object key;
+            if (Long.class.equals(keyType) || long.class.equals(keyType)) {
+                key = Long.valueOf(value);
+            } else if (Double.class.equals(keyType) || double.class.equals(keyType)) {
+                key = Double.valueOf(value);
+            } else {
+                key = value;
+            }
+            return new Object[]{key, id};
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Некоректний курсор сторінки");
+        }
+    }
+}
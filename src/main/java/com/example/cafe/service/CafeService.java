@@ -1,26 +1,53 @@
 package com.example.cafe.service;
 
+import com.example.cafe.dto.CafeListVersion;
+import com.example.cafe.dto.CafeSummary;
+import com.example.cafe.dto.MenuVersion;
 import com.example.cafe.repository.CafeRepository;
-import com.example.cafe.repository.MenuItemRepository;
 import com.example.cafe.model.Cafe;
-import com.example.cafe.model.MenuItem;
+import com.example.cafe.security.CafeOwnershipIndex;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import java.util.List;
+import java.util.Optional;
 
 @Service
 @RequiredArgsConstructor
 public class CafeService {
 
     private final CafeRepository cafeRepository;
-    private final MenuItemRepository menuItemRepository;
+    private final MenuCache menuCache;
+    private final CafeOwnershipIndex cafeOwnershipIndex;
 
-    public List<Cafe> getAllCafes() {
-        return cafeRepository.findAll();
+    public List<CafeSummary> getAllCafes() {
+        return cafeRepository.findAllSummaries();
+    }
+
+    public CafeListVersion getCafesVersion() {
+        return cafeRepository.findListVersion();
+    }
+
+    public Optional<MenuVersion> findMenuVersion(Long cafeId) {
+        return cafeRepository.findMenuVersion(cafeId);
     }
 
     public Cafe createCafe(Cafe cafe) {
-        return cafeRepository.save(cafe);
+        return saveCafe(cafe);
+    }
+
+    /**
+     * Every cafe write goes through here or {@link #deleteCafe}, so that the ownership index that
+     * authorizes manager requests never misses a change of manager.
+     */
+    public Cafe saveCafe(Cafe cafe) {
+        Cafe saved = cafeRepository.save(cafe);
+        cafeOwnershipIndex.update(saved);
+        return saved;
+    }
+
+    public void deleteCafe(Long id) {
+        cafeRepository.deleteById(id);
+        cafeOwnershipIndex.remove(id);
     }
 
     public Cafe getCafeById(Long id) {
@@ -28,10 +55,22 @@ public class CafeService {
                 .orElseThrow(() -> new RuntimeException("Cafe not found"));
     }
 
-    public List<MenuItem> getMenuItemsByCafe(Long cafeId) {
-        if (!cafeRepository.existsById(cafeId)) {
+    /**
+     * The cafe as an unloaded reference, for pointing an order at it without a query.
+     */
+    public Cafe getReference(Long id) {
+        return cafeRepository.getReferenceById(id);
+    }
+
+    public boolean exists(Long id) {
+        return cafeRepository.existsById(id);
+    }
+
+    public RenderedMenu getMenuItemsByCafe(MenuVersion version) {
+        RenderedMenu menu = menuCache.menuOf(version);
+        if (menu == null) {
             throw new RuntimeException("Cafe not found");
         }
-        return menuItemRepository.findByCafeId(cafeId);
+        return menu;
     }
 }
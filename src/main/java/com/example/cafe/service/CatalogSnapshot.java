@@ -0,0 +1,181 @@
+package com.example.cafe.service;
+
+import com.example.cafe.dto.OrderableItem;
+import com.example.cafe.model.MenuItem;
+import com.example.cafe.model.Order;
+import com.example.cafe.util.LongIntHashMap;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Every orderable menu item as flat arrays (id, cafe id, price, name) indexed through an id map.
+ * Never modified after construction; changes produce a new snapshot.
+ */
+public final class CatalogSnapshot {
+
+    /** Orders with more items than this merge repeats through a map instead of rescanning the list. */
+    static final int SCAN_LIMIT = 32;
+
+    static final CatalogSnapshot EMPTY = new CatalogSnapshot(new long[0], new long[0], new double[0], new String[0]);
+
+    private final long[] itemIds;
+    private final long[] cafeIds;
+    private final double[] prices;
+    private final String[] names;
+    private final LongIntHashMap indexById;
+
+    private CatalogSnapshot(long[] itemIds, long[] cafeIds, double[] prices, String[] names) {
+        this.itemIds = itemIds;
+        this.cafeIds = cafeIds;
+        this.prices = prices;
+        this.names = names;
+        this.indexById = new LongIntHashMap(itemIds.length);
+        for (int i = 0; i < itemIds.length; i++) {
+            indexById.put(itemIds[i], i);
+        }
+    }
+
+    static CatalogSnapshot of(Collection<OrderableItem> items) {
+        return EMPTY.with(items);
+    }
+
+    public int size() {
+        return itemIds.length;
+    }
+
+    /**
+     * Adds one line per distinct requested item, priced from the snapshot, and returns {@code true};
+     * repeated ids become the quantity. Returns {@code false} without touching the order when an item
+     * is missing from the snapshot or belongs to another cafe.
+     */
+    public boolean addLines(Order order, long cafeId, List<MenuItem> requested) {
+        for (MenuItem item : requested) {
+            Long id = item.getId();
+            int index = id != null ? indexById.get(id) : -1;
+            if (index < 0 || cafeIds[index] != cafeId) {
+                return false;
+            }
+        }
+        if (requested.size() > SCAN_LIMIT) {
+            addLinesByMap(order, requested);
+            return true;
+        }
+
+        // Orders are a handful of items: scanning for repeats is cheaper than building a map per order.
+        for (int i = 0; i < requested.size(); i++) {
+            long id = requested.get(i).getId();
+            if (occurs(requested, id, 0, i)) {
+                continue;
+            }
+            int quantity = 1;
+            for (int j = i + 1; j < requested.size(); j++) {
+                if (requested.get(j).getId() == id) {
+                    quantity++;
+                }
+            }
+            addLine(order, indexById.get(id), quantity);
+        }
+        return true;
+    }
+
+    private static boolean occurs(List<MenuItem> requested, long id, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (requested.get(i).getId() == id) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void addLinesByMap(Order order, List<MenuItem> requested) {
+        LongIntHashMap lineById = new LongIntHashMap(requested.size());
+        int[] lineItems = new int[requested.size()];
+        int[] quantities = new int[requested.size()];
+        int lines = 0;
+        for (MenuItem item : requested) {
+            long id = item.getId();
+            int line = lineById.get(id);
+            if (line < 0) {
+                lineById.put(id, lines);
+                lineItems[lines] = indexById.get(id);
+                quantities[lines] = 1;
+                lines++;
+            } else {
+                quantities[line]++;
+            }
+        }
+        for (int line = 0; line < lines; line++) {
+            addLine(order, lineItems[line], quantities[line]);
+        }
+    }
+
+    private void addLine(Order order, int index, int quantity) {
+        order.addLine(itemIds[index], names[index], prices[index], quantity);
+    }
+
+    /**
+     * A copy with {@code items} added or replaced. Items without a price or cafe are left out.
+     */
+    CatalogSnapshot with(Collection<OrderableItem> items) {
+        int capacity = itemIds.length + items.size();
+        long[] newIds = Arrays.copyOf(itemIds, capacity);
+        long[] newCafeIds = Arrays.copyOf(cafeIds, capacity);
+        double[] newPrices = Arrays.copyOf(prices, capacity);
+        String[] newNames = Arrays.copyOf(names, capacity);
+        LongIntHashMap index = new LongIntHashMap(capacity);
+        for (int i = 0; i < itemIds.length; i++) {
+            index.put(itemIds[i], i);
+        }
+
+        int count = itemIds.length;
+        for (OrderableItem item : items) {
+            if (item.id() == null || item.cafeId() == null || item.price() == null) {
+                continue;
+            }
+            int slot = index.get(item.id());
+            if (slot < 0) {
+                slot = count++;
+                index.put(item.id(), slot);
+            }
+            newIds[slot] = item.id();
+            newCafeIds[slot] = item.cafeId();
+            newPrices[slot] = item.price();
+            newNames[slot] = item.name() != null ? item.name() : "";
+        }
+        return new CatalogSnapshot(Arrays.copyOf(newIds, count), Arrays.copyOf(newCafeIds, count),
+                Arrays.copyOf(newPrices, count), Arrays.copyOf(newNames, count));
+    }
+
+    /**
+     * A copy without the items of {@code cafeId}.
+     */
+    CatalogSnapshot withoutCafe(long cafeId) {
+        int kept = 0;
+        for (long owner : cafeIds) {
+            if (owner != cafeId) {
+                kept++;
+            }
+        }
+        if (kept == cafeIds.length) {
+            return this;
+        }
+
+        long[] newIds = new long[kept];
+        long[] newCafeIds = new long[kept];
+        double[] newPrices = new double[kept];
+        String[] newNames = new String[kept];
+        int n = 0;
+        for (int i = 0; i < itemIds.length; i++) {
+            if (cafeIds[i] != cafeId) {
+                newIds[n] = itemIds[i];
+                newCafeIds[n] = cafeIds[i];
+                newPrices[n] = prices[i];
+                newNames[n] = names[i];
+                n++;
+            }
+        }
+        return new CatalogSnapshot(newIds, newCafeIds, newPrices, newNames);
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.cafe.service;
+
+import com.example.cafe.config.ReplicaRoutingDataSource;
+import com.example.cafe.dto.MenuVersion;
+import com.example.cafe.repository.CafeRepository;
+import com.example.cafe.repository.MenuItemRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * Rendered menus by cafe id, read through on a miss. Bounded by the total number of menu items;
+ * Caffeine's W-TinyLFU policy keeps the menus of busy cafes when a scan over rarely visited ones
+ * comes through. Every write that changes what a menu serializes to must call {@link #evict}, which
+ * also moves the cafe's menu version on. Menus are loaded from the primary, so a replica that lags
+ * behind a write cannot get a stale menu cached. Readers pass the current version and get a menu no
+ * older than it, even when the write happened on another instance.
+ */
+@Component
+public class MenuCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(MenuCache.class);
+
+    private final CafeRepository cafeRepository;
+    private final MenuItemRepository menuItemRepository;
+    private final ObjectMapper objectMapper;
+    private final Cache<Long, RenderedMenu> menus;
+
+    public MenuCache(CafeRepository cafeRepository,
+                     MenuItemRepository menuItemRepository,
+                     ObjectMapper objectMapper,
+                     @Value("${menu.cache.max-items:100000}") long maxItems,
+                     @Value("${menu.cache.ttl:1h}") Duration ttl,
+                     MeterRegistry meterRegistry) {
+        this.cafeRepository = cafeRepository;
+        this.menuItemRepository = menuItemRepository;
+        this.objectMapper = objectMapper;
+        this.menus = Caffeine.newBuilder()
+                .maximumWeight(maxItems)
+                .weigher((Long cafeId, RenderedMenu menu) -> menu.size() + 1)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, menus, "menu");
+    }
+
+    /**
+     * The menu of the cafe, or {@code null} when there is no such cafe. A cached menu older than
+     * {@code version} is rendered again; a version read from a lagging replica is older than the
+     * cached menu and leaves it in place. There is deliberately no lookup by cafe id alone, which
+     * would serve whatever is cached after a menu change made on another instance. Both the first
+     * load and a reload go through Caffeine, so concurrent readers of one cafe wait for a single load
+     * and its time is recorded.
+     */
+    public RenderedMenu menuOf(MenuVersion version) {
+        RenderedMenu menu = menus.get(version.cafeId(), this::load);
+        if (menu != null && version.isNewerThan(menu.version())) {
+            menu = menus.asMap().compute(version.cafeId(), (cafeId, cached) ->
+                    cached == null || version.isNewerThan(cached.version()) ? load(cafeId) : cached);
+        }
+        return menu;
+    }
+
+    public void evict(Long cafeId) {
+        if (cafeId != null) {
+            evictAll(new long[]{cafeId});
+        }
+    }
+
+    public void evictAll(long[] cafeIds) {
+        if (cafeIds.length == 0) {
+            return;
+        }
+        cafeRepository.incrementMenuVersions(Arrays.stream(cafeIds).boxed().toList());
+        for (long cafeId : cafeIds) {
+            menus.invalidate(cafeId);
+            logger.debug("Меню кафе ID={} видалено з кешу", cafeId);
+        }
+    }
+
+    public CacheStats stats() {
+        return menus.stats();
+    }
+
+    private RenderedMenu load(Long cafeId) {
+        // The version is read first, so the items are at least as new as the version they are kept under.
+        return ReplicaRoutingDataSource.readFromPrimary(() -> cafeRepository.findMenuVersion(cafeId)
+                .map(version -> RenderedMenu.of(version, menuItemRepository.findViewsByCafeId(cafeId), objectMapper))
+                .orElse(null));
+    }
+}
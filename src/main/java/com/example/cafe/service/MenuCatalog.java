@@ -0,0 +1,61 @@
+package com.example.cafe.service;
+
+import com.example.cafe.dto.OrderableItem;
+import com.example.cafe.model.MenuItem;
+import com.example.cafe.model.Order;
+import com.example.cafe.repository.MenuItemRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * What every menu item costs and which cafe sells it, so that orders can be validated and priced
+ * without a query. Readers never lock: writers publish a new {@link CatalogSnapshot}. Items created
+ * on another instance are missing here until an order for them goes through the database check.
+ */
+@Component
+public class MenuCatalog {
+
+    private static final Logger logger = LoggerFactory.getLogger(MenuCatalog.class);
+
+    private final MenuItemRepository menuItemRepository;
+    private final AtomicReference<CatalogSnapshot> snapshot = new AtomicReference<>(CatalogSnapshot.EMPTY);
+
+    public MenuCatalog(MenuItemRepository menuItemRepository) {
+        this.menuItemRepository = menuItemRepository;
+    }
+
+    @PostConstruct
+    public synchronized void load() {
+        snapshot.set(CatalogSnapshot.of(menuItemRepository.findAllOrderable()));
+        logger.info("Завантажено {} позицій меню до каталогу", snapshot.get().size());
+    }
+
+    /**
+     * See {@link CatalogSnapshot#addLines}; {@code false} means the caller has to check the database.
+     */
+    public boolean addLines(Order order, long cafeId, List<MenuItem> requested) {
+        return snapshot.get().addLines(order, cafeId, requested);
+    }
+
+    public void put(MenuItem item) {
+        if (item.getCafe() != null) {
+            putAll(List.of(new OrderableItem(item.getId(), item.getName(), item.getPrice(), item.getCafe().getId())));
+        }
+    }
+
+    public synchronized void putAll(Collection<OrderableItem> items) {
+        snapshot.set(snapshot.get().with(items));
+    }
+
+    public synchronized void removeCafe(Long cafeId) {
+        if (cafeId != null) {
+            snapshot.set(snapshot.get().withoutCafe(cafeId));
+        }
+    }
+}
@@ -1,11 +1,15 @@
 package com.example.cafe.service;
 
+import com.example.cafe.dto.MenuVersion;
+import com.example.cafe.dto.OrderableItem;
 import com.example.cafe.repository.MenuItemRepository;
 import com.example.cafe.model.MenuItem;
 import com.example.cafe.model.Cafe;
 import org.springframework.stereotype.Service;
 import lombok.RequiredArgsConstructor;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Service
 @RequiredArgsConstructor
@@ -13,14 +17,31 @@ public class MenuItemService {
 
     private final MenuItemRepository menuItemRepository;
     private final CafeService cafeService;
+    private final MenuCache menuCache;
+    private final MenuCatalog menuCatalog;
 
     public MenuItem getById(Long id) {
         return menuItemRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("MenuItem not found"));
     }
 
-    public List<MenuItem> getMenuByCafeId(Long cafeId) {
-        return menuItemRepository.findByCafeId(cafeId);
+    public List<OrderableItem> findOrderable(Collection<Long> ids, Long cafeId) {
+        return menuItemRepository.findOrderable(ids, cafeId);
+    }
+
+    public boolean exists(Long id) {
+        return menuItemRepository.existsById(id);
+    }
+
+    public Optional<MenuVersion> findMenuVersion(Long cafeId) {
+        return cafeService.findMenuVersion(cafeId);
+    }
+
+    /**
+     * The rendered menu, or {@code null} when the cafe is gone.
+     */
+    public RenderedMenu getMenuByCafeId(MenuVersion version) {
+        return menuCache.menuOf(version);
     }
 
     public List<MenuItem> getAllMenuItems() {
@@ -33,6 +54,11 @@ public class MenuItemService {
             Cafe cafe = cafeService.getCafeById(cafeId);
             menuItem.setCafe(cafe);
         }
-        return menuItemRepository.save(menuItem);
+        MenuItem saved = menuItemRepository.save(menuItem);
+        if (saved.getCafe() != null) {
+            menuCache.evict(saved.getCafe().getId());
+            menuCatalog.put(saved);
+        }
+        return saved;
     }
 }
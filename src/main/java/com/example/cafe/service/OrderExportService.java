@@ -0,0 +1,175 @@
+package com.example.cafe.service;
+
+import jakarta.annotation.PreDestroy;
+import org.postgresql.PGConnection;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.async.WebAsyncTask;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Order export for finance. PostgreSQL writes the rows itself through {@code COPY ... TO STDOUT}
+ * and the driver copies them straight into the given stream, so memory use does not depend on the
+ * number of orders. Exports run on their own small pool and with their own timeout rather than
+ * the MVC default, which would cut a large export off; when the pool is busy, {@link #submit}
+ * throws {@link RejectedExecutionException} and the caller answers 503.
+ */
+@Service
+public class OrderExportService {
+
+    public enum Format {
+        CSV("text/csv", "csv"),
+        NDJSON("application/x-ndjson", "ndjson");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        public static Format parse(String value) {
+            if (value == null) {
+                return CSV;
+            }
+            try {
+                return valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+    }
+
+    private static final String ITEM_LABEL =
+            "case when l.quantity > 1 then l.item_name || ' x' || l.quantity else l.item_name end";
+
+    private final DataSource dataSource;
+    private final ThreadPoolExecutor executor;
+    private final AsyncTaskExecutor taskExecutor;
+    private final Semaphore slots;
+    private final Duration timeout;
+
+    public OrderExportService(DataSource dataSource,
+                              @Value("${export.orders.threads:2}") int threads,
+                              @Value("${export.orders.queue-capacity:2}") int queueCapacity,
+                              @Value("${export.orders.timeout:1h}") Duration timeout) {
+        this.dataSource = dataSource;
+        this.timeout = timeout;
+        this.slots = new Semaphore(threads + queueCapacity);
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "order-export-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.taskExecutor = new TaskExecutorAdapter(executor);
+    }
+
+    /**
+     * An async task that runs {@code task} on the export pool, with the export timeout. The slot is
+     * taken here, so a busy pool is reported before the request goes async, and handed back when the
+     * task finishes or the request completes without it having run.
+     */
+    public <T> WebAsyncTask<T> submit(Callable<T> task) {
+        if (!slots.tryAcquire()) {
+            throw new RejectedExecutionException("Order export pool is busy");
+        }
+        AtomicBoolean released = new AtomicBoolean();
+        Runnable release = () -> {
+            if (released.compareAndSet(false, true)) {
+                slots.release();
+            }
+        };
+        WebAsyncTask<T> asyncTask = new WebAsyncTask<>(timeout.toMillis(), taskExecutor, () -> {
+            try {
+                return task.call();
+            } finally {
+                release.run();
+            }
+        });
+        asyncTask.onCompletion(release);
+        return asyncTask;
+    }
+
+    /**
+     * Streams the matching orders into {@code out} and returns the number of rows written.
+     */
+    public long copyOut(Format format, LocalDate from, LocalDate to, Long cafeId, OutputStream out)
+            throws SQLException, IOException {
+        try (Connection connection = dataSource.getConnection()) {
+            return connection.unwrap(PGConnection.class).getCopyAPI()
+                    .copyOut(copySql(format, from, to, cafeId), out);
+        }
+    }
+
+    /**
+     * COPY takes no bind parameters, so the filters are rendered as literals. Only typed values
+     * ({@link LocalDate}, {@link Long}) reach this method, so nothing user-supplied is spliced in as text.
+     */
+    public static String copySql(Format format, LocalDate from, LocalDate to, Long cafeId) {
+        List<String> where = new ArrayList<>();
+        if (cafeId != null) {
+            where.add("o.cafe_id = " + cafeId);
+        }
+        if (from != null) {
+            where.add("o.created_at >= date '" + from + "'");
+        }
+        if (to != null) {
+            where.add("o.created_at < date '" + to + "' + 1");
+        }
+
+        String items = format == Format.CSV
+                ? "(select string_agg(" + ITEM_LABEL + ", '; ' order by l.id) from order_line l where l.order_id = o.id)"
+                : "array(select " + ITEM_LABEL + " from order_line l where l.order_id = o.id order by l.id)";
+        String select = "select o.id, o.created_at, o.cafe_id, c.name as cafe_name, u.username as customer,"
+                + " o.total_amount, " + items + " as items"
+                + " from orders o left join cafe c on c.id = o.cafe_id left join users u on u.id = o.user_id"
+                + (where.isEmpty() ? "" : " where " + String.join(" and ", where))
+                + " order by o.id";
+
+        if (format == Format.CSV) {
+            return "copy (" + select + ") to stdout with (format csv, header true)";
+        }
+        // CSV mode with control characters as quote and delimiter: unlike text mode it leaves the
+        // backslashes inside the JSON alone, and row_to_json never emits either character raw.
+        return "copy (select row_to_json(t) from (" + select + ") t)"
+                + " to stdout with (format csv, quote e'\\x01', delimiter e'\\x02')";
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.cafe.service;
+
+import lombok.Getter;
+
+/**
+ * Thrown by {@link OrderService#placeOrder} when the request itself is wrong; {@link #getReason()}
+ * tells the caller which check failed, {@link #getMenuItemId()} which item it failed on.
+ */
+@Getter
+public class OrderRejectedException extends IllegalArgumentException {
+
+    public enum Reason {
+        CAFE_REQUIRED,
+        CAFE_NOT_FOUND,
+        NO_ITEMS,
+        MENU_ITEM_NOT_FOUND,
+        MENU_ITEM_FROM_OTHER_CAFE
+    }
+
+    private final Reason reason;
+    private final Long menuItemId;
+
+    public OrderRejectedException(Reason reason, String message) {
+        this(reason, null, message);
+    }
+
+    public OrderRejectedException(Reason reason, Long menuItemId, String message) {
+        super(message);
+        this.reason = reason;
+        this.menuItemId = menuItemId;
+    }
+}
@@ -1,13 +1,19 @@
 package com.example.cafe.service;
 
+import com.example.cafe.dto.OrderableItem;
 import com.example.cafe.repository.OrderRepository;
 import com.example.cafe.model.Order;
 import com.example.cafe.model.MenuItem;
-import com.example.cafe.model.Cafe;
+import com.example.cafe.model.OrderLine;
+import com.example.cafe.service.OrderRejectedException.Reason;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
@@ -16,35 +22,77 @@ public class OrderService {
     private final OrderRepository orderRepository;
     private final CafeService cafeService;
     private final MenuItemService menuItemService;
+    private final MenuCatalog menuCatalog;
 
     public Order placeOrder(Order order) {
-        if (order.getCafe() != null && order.getCafe().getId() != null) {
-            Cafe cafe = cafeService.getCafeById(order.getCafe().getId());
-            if (cafe == null) {
-                throw new IllegalArgumentException("Cafe with ID " + order.getCafe().getId() + " not found");
+        if (order.getCafe() == null || order.getCafe().getId() == null) {
+            throw new OrderRejectedException(Reason.CAFE_REQUIRED, "Order must contain a valid cafe with an ID");
+        }
+        Long cafeId = order.getCafe().getId();
+
+        if (order.getItems() == null || order.getItems().isEmpty()) {
+            if (!cafeService.exists(cafeId)) {
+                throw new OrderRejectedException(Reason.CAFE_NOT_FOUND, "Cafe " + cafeId + " not found");
             }
-            order.setCafe(cafe);
-        } else {
-            throw new IllegalArgumentException("Order must contain a valid cafe with an ID");
+            throw new OrderRejectedException(Reason.NO_ITEMS, "Order must contain at least one menu item");
+        }
+
+        order.setCafe(cafeService.getReference(cafeId));
+        order.getLines().clear();
+        if (!menuCatalog.addLines(order, cafeId, order.getItems())) {
+            // Not in this instance's catalog: the request is wrong, or the item was added elsewhere.
+            addLinesFromDatabase(order, cafeId);
         }
+        order.setTotalAmount(order.getLines().stream()
+                .mapToDouble(OrderLine::getLineTotal)
+                .sum());
 
-        if (order.getItems() != null && !order.getItems().isEmpty()) {
-            List<MenuItem> fullItems = order.getItems().stream()
-                    .map(item -> menuItemService.getById(item.getId()))
-                    .collect(Collectors.toList());
+        try {
+            return orderRepository.save(order);
+        } catch (DataIntegrityViolationException e) {
+            // The catalog still listed a cafe that another instance has just deleted.
+            throw new OrderRejectedException(Reason.CAFE_NOT_FOUND, "Cafe " + cafeId + " not found");
+        }
+    }
 
-            for (MenuItem item : fullItems) {
-                if (!item.getCafe().equals(order.getCafe())) {
-                    throw new IllegalArgumentException("MenuItem " + item.getName() + " does not belong to the selected cafe");
-                }
+    private void addLinesFromDatabase(Order order, Long cafeId) {
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        for (MenuItem item : order.getItems()) {
+            if (item.getId() == null) {
+                throw new OrderRejectedException(Reason.MENU_ITEM_NOT_FOUND, "MenuItem must have an ID");
             }
+            quantities.merge(item.getId(), 1, Integer::sum);
+        }
 
-            order.setItems(fullItems);
-        } else {
-            throw new IllegalArgumentException("Order must contain at least one menu item");
+        // One query validates every item against the cafe; only the error path looks further.
+        Map<Long, OrderableItem> items = new HashMap<>();
+        for (OrderableItem item : menuItemService.findOrderable(quantities.keySet(), cafeId)) {
+            items.put(item.id(), item);
+        }
+        if (items.size() < quantities.size()) {
+            throw rejection(cafeId, quantities.keySet(), items.keySet());
         }
+        menuCatalog.putAll(items.values());
+
+        quantities.forEach((id, quantity) -> {
+            OrderableItem item = items.get(id);
+            order.addLine(item.id(), item.name(), item.price(), quantity);
+        });
+    }
 
-        return orderRepository.save(order);
+    private OrderRejectedException rejection(Long cafeId, Set<Long> requested, Set<Long> found) {
+        if (!cafeService.exists(cafeId)) {
+            return new OrderRejectedException(Reason.CAFE_NOT_FOUND, "Cafe " + cafeId + " not found");
+        }
+        Long missing = requested.stream()
+                .filter(id -> !found.contains(id))
+                .findFirst()
+                .orElseThrow();
+        if (!menuItemService.exists(missing)) {
+            return new OrderRejectedException(Reason.MENU_ITEM_NOT_FOUND, missing, "MenuItem " + missing + " not found");
+        }
+        return new OrderRejectedException(Reason.MENU_ITEM_FROM_OTHER_CAFE, missing,
+                "MenuItem " + missing + " does not belong to the selected cafe");
     }
 
     public List<Order> getOrdersByCustomer(String customerName) {
@@ -0,0 +1,115 @@
+package com.example.cafe.service;
+
+import com.example.cafe.model.RefreshToken;
+import com.example.cafe.model.User;
+import com.example.cafe.repository.RefreshTokenRepository;
+import com.example.cafe.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.Optional;
+
+@Service
+@RequiredArgsConstructor
+public class RefreshTokenService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RefreshTokenService.class);
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final UserRepository userRepository;
+
+    @Value("${jwt.refresh-expiration}")
+    private long refreshExpirationInMs;
+
+    public record Rotation(User user, String refreshToken) {
+    }
+
+    public long getExpirationInMs() {
+        return refreshExpirationInMs;
+    }
+
+    @Transactional
+    public String issue(Long userId) {
+        byte[] bytes = new byte[32];
+        RANDOM.nextBytes(bytes);
+        String rawToken = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        RefreshToken refreshToken = new RefreshToken(null, hash(rawToken), userRepository.getReferenceById(userId),
+                Instant.now().plusMillis(refreshExpirationInMs), false);
+        refreshTokenRepository.save(refreshToken);
+        return rawToken;
+    }
+
+    @Transactional
+    public Optional<Rotation> rotate(String rawToken) {
+        Optional<RefreshToken> found = refreshTokenRepository.findByTokenHash(hash(rawToken));
+        if (found.isEmpty()) {
+            return Optional.empty();
+        }
+
+        RefreshToken refreshToken = found.get();
+        User user = refreshToken.getUser();
+
+        // The revocation is a conditional update rather than a flag on the loaded row, so that of
+        // two refreshes racing with one token only one wins; the loser is treated as reuse.
+        if (refreshToken.isRevoked() || refreshTokenRepository.revokeIfActive(refreshToken.getId()) != 1) {
+            logger.warn("Повторне використання відкликаного refresh-токена користувача id={}", user.getId());
+            refreshTokenRepository.revokeAllByUserId(user.getId());
+            return Optional.empty();
+        }
+
+        if (refreshToken.getExpiresAt().isBefore(Instant.now()) || !Boolean.TRUE.equals(user.getEnabled())) {
+            return Optional.empty();
+        }
+
+        return Optional.of(new Rotation(user, issue(user.getId())));
+    }
+
+    @Transactional
+    public void revoke(String rawToken) {
+        refreshTokenRepository.findByTokenHash(hash(rawToken))
+                .ifPresent(refreshToken -> refreshToken.setRevoked(true));
+    }
+
+    @Transactional
+    public void revokeAllForUser(Long userId) {
+        refreshTokenRepository.revokeAllByUserId(userId);
+    }
+
+    @Transactional
+    public void deleteAllForUser(Long userId) {
+        refreshTokenRepository.deleteAllByUserId(userId);
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.refresh-purge-interval:3600000}")
+    @Transactional
+    public void purgeExpired() {
+        int deleted = refreshTokenRepository.deleteExpired(Instant.now());
+        if (deleted > 0) {
+            logger.info("Видалено {} прострочених refresh-токенів", deleted);
+        }
+    }
+
+    private static String hash(String rawToken) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(rawToken.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
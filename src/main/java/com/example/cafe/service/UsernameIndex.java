@@ -0,0 +1,47 @@
+package com.example.cafe.service;
+
+import com.example.cafe.repository.UserRepository;
+import com.example.cafe.util.ConcurrentBloomFilter;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Bloom filter of taken usernames. A negative answer means the name is definitely free and the
+ * registration can go straight to the insert; a positive one has to be confirmed by the database.
+ * Names are never removed, so deleted or renamed users only cost an extra query.
+ */
+@Component
+public class UsernameIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(UsernameIndex.class);
+
+    private final UserRepository userRepository;
+    private final ConcurrentBloomFilter filter;
+
+    public UsernameIndex(UserRepository userRepository,
+                         @Value("${security.username-filter.bits:4194304}") int bits,
+                         @Value("${security.username-filter.hashes:5}") int hashes) {
+        this.userRepository = userRepository;
+        this.filter = new ConcurrentBloomFilter(bits, hashes);
+    }
+
+    @PostConstruct
+    public void load() {
+        List<String> usernames = userRepository.findAllUsernames();
+        usernames.forEach(filter::add);
+        logger.info("Завантажено {} імен користувачів у фільтр", usernames.size());
+    }
+
+    public boolean mightExist(String username) {
+        return filter.mightContain(username);
+    }
+
+    public void add(String username) {
+        filter.add(username);
+    }
+}
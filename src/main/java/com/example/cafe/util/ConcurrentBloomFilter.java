@@ -0,0 +1,59 @@
+package com.example.cafe.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free Bloom filter over strings. {@link #mightContain} never returns a false negative for a
+ * value that was {@link #add added}; false positives are possible and the caller must confirm them.
+ */
+public class ConcurrentBloomFilter {
+
+    private final AtomicLongArray bits;
+    private final int mask;
+    private final int hashes;
+
+    /**
+     * @param bitCount number of bits, rounded up to a power of two
+     */
+    public ConcurrentBloomFilter(int bitCount, int hashes) {
+        int size = Integer.highestOneBit(Math.max(bitCount, Long.SIZE) - 1) << 1;
+        this.bits = new AtomicLongArray(size / Long.SIZE);
+        this.mask = size - 1;
+        this.hashes = hashes;
+    }
+
+    public void add(String value) {
+        int h1 = value.hashCode();
+        int h2 = mix(h1);
+        for (int i = 0; i < hashes; i++) {
+            int bit = (h1 + i * h2) & mask;
+            int word = bit >>> 6;
+            long wordMask = 1L << bit;
+            long current;
+            do {
+                current = bits.get(word);
+            } while ((current & wordMask) == 0 && !bits.compareAndSet(word, current, current | wordMask));
+        }
+    }
+
+    public boolean mightContain(String value) {
+        int h1 = value.hashCode();
+        int h2 = mix(h1);
+        for (int i = 0; i < hashes; i++) {
+            int bit = (h1 + i * h2) & mask;
+            if ((bits.get(bit >>> 6) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h | 1;
+    }
+}
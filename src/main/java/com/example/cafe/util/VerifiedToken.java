@@ -0,0 +1,25 @@
+package com.example.cafe.util;
+
+import com.example.cafe.security.RoleAuthorities;
+import lombok.Value;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.List;
+
+@Value
+public class VerifiedToken {
+    String tokenId;
+    Long userId;
+    String subject;
+    int roleMask;
+    int securityVersion;
+    long expiresAtMillis;
+
+    public List<GrantedAuthority> getAuthorities() {
+        return RoleAuthorities.forMask(roleMask);
+    }
+
+    public boolean isExpired(long nowMillis) {
+        return expiresAtMillis <= nowMillis;
+    }
+}
@@ -0,0 +1,60 @@
+-- Schema as it was left by Hibernate's ddl-auto=update. Every statement is idempotent, so the script
+-- also brings older databases (baselined at version 0) up to date without touching existing data.
+
+create sequence if not exists menu_item_seq start with 1 increment by 50;
+create sequence if not exists order_line_seq start with 1 increment by 50;
+create sequence if not exists orders_seq start with 1 increment by 50;
+
+create table if not exists users (
+    id               bigint generated by default as identity primary key,
+    username         varchar(255) not null unique,
+    password         varchar(255) not null,
+    enabled          boolean      not null,
+    role_mask        integer      default 0 not null,
+    security_version integer      default 0 not null
+);
+alter table users add column if not exists role_mask integer default 0 not null;
+alter table users add column if not exists security_version integer default 0 not null;
+
+create table if not exists cafe (
+    id         bigint generated by default as identity primary key,
+    name       varchar(255),
+    address    varchar(255),
+    city       varchar(255),
+    manager_id bigint references users (id)
+);
+
+create table if not exists menu_item (
+    id       bigint not null primary key,
+    name     varchar(255),
+    price    float(53),
+    category varchar(255),
+    cafe_id  bigint references cafe (id)
+);
+
+create table if not exists orders (
+    id            bigint not null primary key,
+    customer_name varchar(255),
+    total_amount  float(53) not null,
+    created_at    timestamp(6) with time zone,
+    cafe_id       bigint references cafe (id),
+    user_id       bigint references users (id)
+);
+alter table orders add column if not exists created_at timestamp(6) with time zone;
+
+create table if not exists order_line (
+    id           bigint       not null primary key,
+    order_id     bigint       not null references orders (id),
+    menu_item_id bigint       not null,
+    item_name    varchar(255) not null,
+    unit_price   float(53)    not null,
+    quantity     integer      not null
+);
+
+create table if not exists refresh_token (
+    id         bigint generated by default as identity primary key,
+    token_hash varchar(64)                 not null unique,
+    user_id    bigint                      not null references users (id),
+    expires_at timestamp(6) with time zone not null,
+    revoked    boolean                     not null
+);
@@ -0,0 +1,15 @@
+-- Foreign keys used as filters, plus (filter, id) pairs for the keyset pages that order by id.
+
+create index if not exists idx_menu_item_cafe on menu_item (cafe_id);
+create index if not exists idx_cafe_manager on cafe (manager_id);
+
+create index if not exists idx_orders_user on orders (user_id, id);
+create index if not exists idx_orders_cafe on orders (cafe_id, id);
+create index if not exists idx_orders_customer_name on orders (customer_name);
+create index if not exists idx_orders_total_amount on orders (total_amount, id);
+create index if not exists idx_orders_created_at on orders (created_at);
+
+create index if not exists idx_order_line_order on order_line (order_id, id);
+
+create index if not exists idx_refresh_token_user on refresh_token (user_id);
+create index if not exists idx_refresh_token_expires on refresh_token (expires_at);
@@ -0,0 +1,5 @@
+-- Optimistic locking for cafes and menu items, plus a per-cafe menu version that every menu change
+-- moves on. Together they are the ETags of the cafe list and menu endpoints.
+alter table cafe add column if not exists version bigint not null default 0;
+alter table cafe add column if not exists menu_version bigint not null default 0;
+alter table menu_item add column if not exists version bigint not null default 0;
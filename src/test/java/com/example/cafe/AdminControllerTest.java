@@ -1,17 +1,58 @@
 package com.example.cafe;
 
+import com.example.cafe.dto.AdminUserRow;
+import com.example.cafe.dto.MenuItemView;
+import com.example.cafe.dto.MenuVersion;
+import com.example.cafe.dto.TablePage;
+import com.example.cafe.dto.TableRequest;
 import com.example.cafe.model.*;
 import com.example.cafe.repository.*;
 import com.example.cafe.controller.AdminController;
+import com.example.cafe.security.UserSecurityVersions;
+import com.example.cafe.service.AdminTableService;
+import com.example.cafe.service.CafeService;
+import com.example.cafe.service.MenuCache;
+import com.example.cafe.service.MenuCatalog;
+import com.example.cafe.service.OrderExportService;
+import com.example.cafe.service.RefreshTokenService;
+import com.example.cafe.service.RenderedMenu;
+import com.example.cafe.service.UserDetailsServiceImpl;
+import com.example.cafe.service.UsernameIndex;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.*;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.ResponseEntity;
-
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.async.WebAsyncTask;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 public class AdminControllerTest {
 
@@ -24,6 +65,33 @@ public class AdminControllerTest {
     @Mock
     private MenuItemRepository menuItemRepository;
 
+    @Mock
+    private UserSecurityVersions userSecurityVersions;
+
+    @Mock
+    private UserDetailsServiceImpl userDetailsService;
+
+    @Mock
+    private RefreshTokenService refreshTokenService;
+
+    @Mock
+    private UsernameIndex usernameIndex;
+
+    @Mock
+    private CafeService cafeService;
+
+    @Mock
+    private AdminTableService adminTableService;
+
+    @Mock
+    private OrderExportService orderExportService;
+
+    @Mock
+    private MenuCache menuCache;
+
+    @Mock
+    private MenuCatalog menuCatalog;
+
     @InjectMocks
     private AdminController adminController;
 
@@ -33,48 +101,188 @@ public class AdminControllerTest {
     }
 
     @Test
-    void getAllUsers_returnsListOfUsers() {
-        List<User> users = List.of(new User(), new User());
-        when(userRepository.findAll()).thenReturn(users);
+    void getAllUsers_returnsTablePage() {
+        TableRequest request = new TableRequest("username", "asc", null, 20, null);
+        TablePage<AdminUserRow> page = new TablePage<>(
+                List.of(new AdminUserRow(1L, "alice", true, Role.names(Role.MANAGER.getMask()))), null, 1L, false);
+        when(adminTableService.users(request, "ROLE_MANAGER")).thenReturn(page);
 
-        ResponseEntity<List<User>> response = adminController.getAllUsers();
+        ResponseEntity<?> response = adminController.getAllUsers(request, "ROLE_MANAGER");
 
-        assertThat(response.getBody()).isEqualTo(users);
         assertThat(response.getStatusCodeValue()).isEqualTo(200);
+        assertThat(response.getBody()).isEqualTo(page);
+        verify(userRepository, never()).findAll();
+    }
+
+    @Test
+    void getAllOrders_unsupportedSort_returnsBadRequest() {
+        TableRequest request = new TableRequest("password", null, null, null, null);
+        when(adminTableService.orders(request, null, null, null))
+                .thenThrow(new IllegalArgumentException("Сортування за полем 'password' не підтримується"));
+
+        ResponseEntity<?> response = adminController.getAllOrders(request, null, null, null);
+
+        assertThat(response.getStatusCodeValue()).isEqualTo(400);
+        assertThat(response.getBody()).isEqualTo("Сортування за полем 'password' не підтримується");
+    }
+
+    @Test
+    void exportOrders_unknownFormat_returnsBadRequestWithoutStarting() throws Exception {
+        ResponseEntity<?> response = result(adminController.exportOrders("xml", null, null, null, false,
+                new MockHttpServletResponse()));
+
+        assertThat(response.getStatusCodeValue()).isEqualTo(400);
+        verifyNoInteractions(orderExportService);
+    }
+
+    @Test
+    void exportOrders_poolBusy_returnsServiceUnavailable() throws Exception {
+        ReflectionTestUtils.setField(adminController, "exportRetryAfterSeconds", 30L);
+        when(orderExportService.submit(any())).thenThrow(new RejectedExecutionException());
+        MockHttpServletResponse servletResponse = new MockHttpServletResponse();
+
+        ResponseEntity<?> response = result(adminController.exportOrders("csv", null, null, null, true,
+                servletResponse));
+
+        assertThat(response.getStatusCodeValue()).isEqualTo(503);
+        assertThat(response.getHeaders().getFirst("Retry-After")).isEqualTo("30");
+        assertThat(servletResponse.getHeader("Content-Disposition")).isNull();
+    }
+
+    @Test
+    void exportOrders_outlastingTheMvcAsyncTimeout_completes() throws Exception {
+        OrderExportService slowExport = exportService((out, rows) -> {
+            for (int i = 0; i < rows; i++) {
+                Thread.sleep(100);
+                out.write(("row " + i + "\n").getBytes(StandardCharsets.UTF_8));
+            }
+        });
+        ReflectionTestUtils.setField(adminController, "orderExportService", slowExport);
+        // MockMvc waits for the async result only as long as the request's async timeout.
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(adminController).setAsyncRequestTimeout(50).build();
+
+        try {
+            MvcResult pending = mockMvc.perform(get("/admin/orders/export").param("format", "csv"))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+            mockMvc.perform(asyncDispatch(pending))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string("Content-Disposition", "attachment; filename=\"orders.csv\""))
+                    .andExpect(content().string("row 0\nrow 1\nrow 2\n"));
+        } finally {
+            slowExport.shutdown();
+        }
+    }
+
+    @Test
+    void exportOrders_copyFailsBeforeAnyOutput_returnsServerError() throws Exception {
+        OrderExportService failingExport = exportService((out, rows) -> {
+            throw new SQLException("connection lost");
+        });
+        ReflectionTestUtils.setField(adminController, "orderExportService", failingExport);
+        MockHttpServletResponse servletResponse = new MockHttpServletResponse();
+
+        try {
+            ResponseEntity<?> response = result(adminController.exportOrders("csv", null, null, null, true,
+                    servletResponse));
+
+            assertThat(response.getStatusCodeValue()).isEqualTo(500);
+            assertThat(servletResponse.getHeader("Content-Disposition")).isNull();
+        } finally {
+            failingExport.shutdown();
+        }
+    }
+
+    @Test
+    void exportOrders_copyFailsMidStream_abortsTheResponse() throws Exception {
+        OrderExportService failingExport = exportService((out, rows) -> {
+            out.write(new byte[64 * 1024]);
+            throw new SQLException("connection lost");
+        });
+        ReflectionTestUtils.setField(adminController, "orderExportService", failingExport);
+        MockHttpServletResponse servletResponse = new MockHttpServletResponse();
+
+        try {
+            Callable<?> export = adminController.exportOrders("csv", null, null, null, false,
+                    servletResponse).getCallable();
+
+            assertThatThrownBy(export::call).isInstanceOf(SQLException.class);
+            assertThat(servletResponse.isCommitted()).isTrue();
+        } finally {
+            failingExport.shutdown();
+        }
     }
 
     @Test
     void getMenuItemsByCafe_cafeNotExists_returnsNotFound() {
-        when(cafeRepository.existsById(1L)).thenReturn(false);
+        when(cafeRepository.findMenuVersion(1L)).thenReturn(Optional.empty());
 
-        ResponseEntity<List<MenuItem>> response = adminController.getMenuItemsByCafe(1L);
+        ResponseEntity<byte[]> response = adminController.getMenuItemsByCafe(1L, webRequest());
 
         assertThat(response.getStatusCodeValue()).isEqualTo(404);
     }
 
     @Test
-    void getMenuItemsByCafe_cafeExists_returnsMenuItems() {
-        when(cafeRepository.existsById(1L)).thenReturn(true);
-        List<MenuItem> items = List.of(new MenuItem(), new MenuItem());
-        when(menuItemRepository.findByCafeId(1L)).thenReturn(items);
+    void getMenuItemsByCafe_cafeExists_returnsRenderedMenu() {
+        RenderedMenu menu = RenderedMenu.of(new MenuVersion(1L, 0L, 0L),
+                List.of(new MenuItemView(100L, "Latte", 5.5, "Coffee", 1L)), new ObjectMapper());
+        when(cafeRepository.findMenuVersion(1L)).thenReturn(Optional.of(menu.version()));
+        when(menuCache.menuOf(menu.version())).thenReturn(menu);
 
-        ResponseEntity<List<MenuItem>> response = adminController.getMenuItemsByCafe(1L);
+        ResponseEntity<byte[]> response = adminController.getMenuItemsByCafe(1L, webRequest());
 
-        assertThat(response.getBody()).isEqualTo(items);
+        assertThat(response.getBody()).isSameAs(menu.json());
         assertThat(response.getStatusCodeValue()).isEqualTo(200);
+        verify(menuItemRepository, never()).findByCafeId(anyLong(), anyLong());
     }
 
     @Test
     void createUser_usernameExists_returnsBadRequest() {
         User user = new User();
         user.setUsername("existingUser");
+        user.setPassword("password");
+
+        when(usernameIndex.mightExist("existingUser")).thenReturn(true);
+        when(userRepository.existsByUsername("existingUser")).thenReturn(true);
+
+        ResponseEntity<?> response = adminController.createUser(user);
+
+        assertThat(response.getStatusCodeValue()).isEqualTo(400);
+        assertThat(response.getBody()).isEqualTo("Ім'я користувача вже існує");
+    }
+
+    @Test
+    void createUser_definitelyFreeUsername_insertsWithoutLookup() {
+        ReflectionTestUtils.setField(adminController, "passwordEncoder", new BCryptPasswordEncoder(4));
+        User user = new User();
+        user.setUsername("newUser");
+        user.setPassword("password");
+
+        when(usernameIndex.mightExist("newUser")).thenReturn(false);
+        when(userRepository.saveAndFlush(user)).thenReturn(user);
+
+        ResponseEntity<?> response = adminController.createUser(user);
+
+        assertThat(response.getStatusCodeValue()).isEqualTo(200);
+        verify(userRepository, never()).existsByUsername(anyString());
+        verify(usernameIndex).add("newUser");
+    }
+
+    @Test
+    void createUser_uniqueConstraintViolation_returnsBadRequest() {
+        ReflectionTestUtils.setField(adminController, "passwordEncoder", new BCryptPasswordEncoder(4));
+        User user = new User();
+        user.setUsername("racedUser");
+        user.setPassword("password");
 
-        when(userRepository.findByUsername("existingUser")).thenReturn(Optional.of(new User()));
+        when(usernameIndex.mightExist("racedUser")).thenReturn(false);
+        when(userRepository.saveAndFlush(user)).thenThrow(new DataIntegrityViolationException("users_username_key"));
 
         ResponseEntity<?> response = adminController.createUser(user);
 
         assertThat(response.getStatusCodeValue()).isEqualTo(400);
         assertThat(response.getBody()).isEqualTo("Ім'я користувача вже існує");
+        verify(usernameIndex, never()).add(anyString());
     }
 
     @Test
@@ -108,6 +316,27 @@ public class AdminControllerTest {
         assertThat(response.getBody()).isEqualTo("Користувач з таким іменем вже існує");
     }
 
+    @Test
+    void updateUser_rolesChanged_bumpsSecurityVersion() {
+        User user = new User();
+        user.setId(1L);
+        user.setUsername("user1");
+        user.setRoles(Set.of("ROLE_CUSTOMER"));
+
+        User updatedUser = new User();
+        updatedUser.setRoles(Set.of("ROLE_MANAGER"));
+
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+
+        ResponseEntity<?> response = adminController.updateUser(1L, updatedUser);
+
+        assertThat(response.getStatusCodeValue()).isEqualTo(200);
+        verify(userSecurityVersions).bump(user);
+        verify(userSecurityVersions).publish(user);
+        verify(userDetailsService).evict("user1");
+        verifyNoInteractions(menuCache);
+    }
+
     @Test
     void deleteUser_userNotFound_returnsNotFound() {
         when(userRepository.findById(1L)).thenReturn(Optional.empty());
@@ -134,6 +363,7 @@ public class AdminControllerTest {
     @Test
     void deleteUser_validUser_deletesAndReturnsOk() {
         User user = new User();
+        user.setUsername("user1");
         user.setRoles(Set.of("ROLE_CUSTOMER"));
 
         when(userRepository.findById(1L)).thenReturn(Optional.of(user));
@@ -143,7 +373,10 @@ public class AdminControllerTest {
         ResponseEntity<?> response = adminController.deleteUser(1L);
 
         assertThat(response.getStatusCodeValue()).isEqualTo(200);
+        verify(refreshTokenService).deleteAllForUser(1L);
         verify(userRepository).deleteById(1L);
+        verify(userSecurityVersions).revokeAll(1L);
+        verify(userDetailsService).evict("user1");
     }
 
     @Test
@@ -187,12 +420,13 @@ public class AdminControllerTest {
         cafe.setManager(manager);
 
         when(userRepository.findById(10L)).thenReturn(Optional.of(manager));
-        when(cafeRepository.save(cafe)).thenReturn(cafe);
+        when(cafeService.saveCafe(cafe)).thenReturn(cafe);
 
         ResponseEntity<?> response = adminController.createCafe(cafe);
 
         assertThat(response.getStatusCodeValue()).isEqualTo(200);
         assertThat(response.getBody()).isEqualTo(cafe);
+        verify(cafeService).saveCafe(cafe);
     }
 
     @Test
@@ -246,5 +480,35 @@ public class AdminControllerTest {
         assertThat(response.getStatusCodeValue()).isEqualTo(200);
         MenuItem saved = (MenuItem) response.getBody();
         assertThat(saved.getCafe()).isEqualTo(cafe);
+        verify(menuCache).evict(1L);
+    }
+
+    interface ExportWriter {
+        void write(OutputStream out, int rows) throws Exception;
+    }
+
+    private static OrderExportService exportService(ExportWriter writer) {
+        return new OrderExportService(null, 1, 1, Duration.ofMinutes(1)) {
+            @Override
+            public long copyOut(Format format, LocalDate from, LocalDate to, Long cafeId, OutputStream out)
+                    throws SQLException, IOException {
+                try {
+                    writer.write(out, 3);
+                } catch (SQLException | IOException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+                return 3;
+            }
+        };
+    }
+
+    private static ResponseEntity<?> result(WebAsyncTask<ResponseEntity<?>> task) throws Exception {
+        return (ResponseEntity<?>) task.getCallable().call();
+    }
+
+    private static ServletWebRequest webRequest() {
+        return new ServletWebRequest(new MockHttpServletRequest("GET", "/"), new MockHttpServletResponse());
     }
 }
@@ -0,0 +1,130 @@
+package com.example.cafe;
+
+import com.example.cafe.dto.AdminCafeSummary;
+import com.example.cafe.dto.AdminOrderRow;
+import com.example.cafe.dto.AdminUserRow;
+import com.example.cafe.dto.TablePage;
+import com.example.cafe.dto.TableRequest;
+import com.example.cafe.model.Cafe;
+import com.example.cafe.model.MenuItem;
+import com.example.cafe.model.Order;
+import com.example.cafe.model.User;
+import com.example.cafe.service.AdminTableService;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@JpaSliceTest
+@Import(AdminTableService.class)
+public class AdminTableServiceTest {
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private AdminTableService adminTableService;
+
+    private Cafe kyiv;
+
+    @BeforeEach
+    void setUp() {
+        User manager = new User("manager", "x", Set.of("ROLE_MANAGER"));
+        User both = new User("both", "x", Set.of("ROLE_MANAGER", "ROLE_ADMIN"));
+        User customer = new User("customer", "x", Set.of("ROLE_CUSTOMER"));
+        entityManager.persist(manager);
+        entityManager.persist(both);
+        entityManager.persist(customer);
+
+        kyiv = new Cafe(null, "B cafe", "Street 1", "Kyiv", null, null, manager, null, null);
+        entityManager.persist(kyiv);
+        entityManager.persist(new Cafe(null, "A cafe", null, null, null, null, null, null, null));
+        entityManager.persist(new Cafe(null, "C cafe", "Street 3", "kyiv", null, null, both, null, null));
+
+        MenuItem coffee = new MenuItem(null, "Coffee", 3.0, "Drinks", kyiv, null);
+        entityManager.persist(coffee);
+        for (int i = 1; i <= 7; i++) {
+            Order order = new Order();
+            order.setCafe(kyiv);
+            order.setUser(customer);
+            order.addLine(coffee, i);
+            order.setTotalAmount(3.0 * (i % 4));
+            entityManager.persist(order);
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void orders_keysetPagesCoverEveryRowOnceInSortOrder() {
+        List<AdminOrderRow> seen = new ArrayList<>();
+        String cursor = null;
+        do {
+            TablePage<AdminOrderRow> page = adminTableService.orders(
+                    new TableRequest("totalAmount", "desc", cursor, 3, null), null, null, null);
+            assertThat(page.rows()).hasSizeLessThanOrEqualTo(3);
+            seen.addAll(page.rows());
+            cursor = page.nextCursor();
+        } while (cursor != null);
+
+        assertThat(seen).hasSize(7);
+        assertThat(seen).extracting(AdminOrderRow::id).doesNotHaveDuplicates();
+        assertThat(seen).extracting(AdminOrderRow::totalAmount).isSortedAccordingTo((a, b) -> Double.compare(b, a));
+        assertThat(seen.get(0).cafeName()).isEqualTo("B cafe");
+        assertThat(seen.get(0).username()).isEqualTo("customer");
+        assertThat(seen).extracting(AdminOrderRow::itemNames).allMatch(names -> names.size() == 1);
+    }
+
+    @Test
+    void orders_amountFilter_isCountedOnlyWhenExactIsRequested() {
+        TablePage<AdminOrderRow> estimated = adminTableService.orders(
+                new TableRequest(null, null, null, null, null), kyiv.getId(), 6.0, null);
+        TablePage<AdminOrderRow> exact = adminTableService.orders(
+                new TableRequest(null, null, null, null, true), kyiv.getId(), 6.0, null);
+
+        assertThat(estimated.rows()).extracting(AdminOrderRow::totalAmount).containsOnly(6.0, 9.0);
+        assertThat(estimated.total()).isNull();
+        assertThat(exact.total()).isEqualTo(4L);
+        assertThat(exact.totalExact()).isTrue();
+    }
+
+    @Test
+    void users_roleFilterMatchesAnyMaskWithTheRole() {
+        TablePage<AdminUserRow> page = adminTableService.users(
+                new TableRequest("username", null, null, null, null), "ROLE_MANAGER");
+
+        assertThat(page.rows()).extracting(AdminUserRow::username).containsExactly("both", "manager");
+        assertThat(page.rows().get(0).roles()).containsExactly("ROLE_ADMIN", "ROLE_MANAGER");
+    }
+
+    @Test
+    void cafes_nullSortValuesStillPage() {
+        TablePage<AdminCafeSummary> first = adminTableService.cafes(new TableRequest("city", null, null, 2, null), null);
+        TablePage<AdminCafeSummary> second = adminTableService.cafes(
+                new TableRequest("city", null, first.nextCursor(), 2, null), null);
+
+        assertThat(first.rows()).extracting(AdminCafeSummary::name).containsExactly("A cafe", "B cafe");
+        assertThat(first.rows().get(1).manager().username()).isEqualTo("manager");
+        assertThat(second.rows()).extracting(AdminCafeSummary::name).containsExactly("C cafe");
+        assertThat(second.nextCursor()).isNull();
+        assertThat(first.total()).isEqualTo(3L);
+
+        assertThat(adminTableService.cafes(new TableRequest(null, null, null, null, null), "KYIV").rows()).hasSize(2);
+    }
+
+    @Test
+    void unknownSortColumn_isRejected() {
+        assertThatThrownBy(() -> adminTableService.users(new TableRequest("password", null, null, null, null), null))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> adminTableService.users(new TableRequest(null, null, "???", null, null), null))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
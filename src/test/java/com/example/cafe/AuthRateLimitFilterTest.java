@@ -0,0 +1,159 @@
+package com.example.cafe;
+
+import com.example.cafe.filter.AuthRateLimitFilter;
+import com.example.cafe.util.TokenBucketRateLimiter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AuthRateLimitFilterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AuthRateLimitFilter filter = new AuthRateLimitFilter(true,
+            10, Duration.ofMinutes(1), 2, Duration.ofMinutes(1), 1000, Duration.ofMinutes(10),
+            List.of("10.0.0.0/8"), new ObjectMapper(), meterRegistry);
+
+    @Test
+    void tokenBucket_allowsBurstThenRefills() {
+        AtomicLong now = new AtomicLong();
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(3, Duration.ofSeconds(3), 100,
+                Duration.ofMinutes(1), now::get);
+
+        assertThat(limiter.tryAcquire("k")).isZero();
+        assertThat(limiter.tryAcquire("k")).isZero();
+        assertThat(limiter.tryAcquire("k")).isZero();
+        assertThat(limiter.tryAcquire("k")).isEqualTo(TimeUnit.SECONDS.toNanos(1));
+        assertThat(limiter.tryAcquire("other")).isZero();
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertThat(limiter.tryAcquire("k")).isZero();
+        assertThat(limiter.tryAcquire("k")).isPositive();
+    }
+
+    @Test
+    void login_usernameOverLimit_returns429AndKeepsBodyReadable() throws Exception {
+        MockHttpServletResponse allowed = null;
+        MockFilterChain chain = null;
+        for (int i = 0; i < 2; i++) {
+            chain = new MockFilterChain();
+            allowed = new MockHttpServletResponse();
+            filter.doFilter(login("Alice"), allowed, chain);
+        }
+        assertThat(allowed.getStatus()).isEqualTo(200);
+        assertThat(chain.getRequest().getInputStream().readAllBytes())
+                .isEqualTo("{\"username\":\"Alice\",\"password\":\"x\"}".getBytes(StandardCharsets.UTF_8));
+
+        MockHttpServletResponse rejected = new MockHttpServletResponse();
+        MockFilterChain rejectedChain = new MockFilterChain();
+        filter.doFilter(login("alice"), rejected, rejectedChain);
+
+        assertThat(rejected.getStatus()).isEqualTo(429);
+        assertThat(rejected.getHeader("Retry-After")).isNotNull();
+        assertThat(rejectedChain.getRequest()).isNull();
+        assertThat(meterRegistry.get("auth.rate_limit.rejected").tag("key", "username").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void login_oversizedBody_returns413() throws Exception {
+        String password = "x".repeat(17 * 1024);
+        MockHttpServletRequest declared = login("bob");
+        declared.setContent(("{\"username\":\"bob\",\"password\":\"" + password + "\"}")
+                .getBytes(StandardCharsets.UTF_8));
+        MockHttpServletResponse declaredResponse = new MockHttpServletResponse();
+        MockFilterChain declaredChain = new MockFilterChain();
+        filter.doFilter(declared, declaredResponse, declaredChain);
+
+        // Chunked: no Content-Length to go by, so the limit is found while reading.
+        MockHttpServletRequest chunked = new MockHttpServletRequest("POST", "/auth/api/login") {
+            @Override
+            public long getContentLengthLong() {
+                return -1;
+            }
+        };
+        chunked.setServletPath("/auth/api/login");
+        chunked.setContent(declared.getContentAsByteArray());
+        MockHttpServletResponse chunkedResponse = new MockHttpServletResponse();
+        MockFilterChain chunkedChain = new MockFilterChain();
+        filter.doFilter(chunked, chunkedResponse, chunkedChain);
+
+        assertThat(declaredResponse.getStatus()).isEqualTo(413);
+        assertThat(declaredChain.getRequest()).isNull();
+        assertThat(chunkedResponse.getStatus()).isEqualTo(413);
+        assertThat(chunkedChain.getRequest()).isNull();
+    }
+
+    @Test
+    void login_behindTrustedProxy_limitsEachForwardedClientSeparately() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            filter.doFilter(forwardedLogin("user" + i, "203.0.113.7"), response, new MockFilterChain());
+            assertThat(response.getStatus()).isEqualTo(200);
+        }
+        MockHttpServletResponse limited = new MockHttpServletResponse();
+        filter.doFilter(forwardedLogin("user10", "203.0.113.7"), limited, new MockFilterChain());
+        assertThat(limited.getStatus()).isEqualTo(429);
+
+        MockHttpServletResponse other = new MockHttpServletResponse();
+        filter.doFilter(forwardedLogin("user11", "198.51.100.4"), other, new MockFilterChain());
+        assertThat(other.getStatus()).isEqualTo(200);
+
+        // A client cannot pick another bucket by sending the header itself: only the proxy's hop counts.
+        MockHttpServletRequest spoofed = forwardedLogin("user12", "198.51.100.9, 203.0.113.7");
+        MockHttpServletResponse spoofedResponse = new MockHttpServletResponse();
+        filter.doFilter(spoofed, spoofedResponse, new MockFilterChain());
+        assertThat(spoofedResponse.getStatus()).isEqualTo(429);
+    }
+
+    @Test
+    void login_fromUntrustedPeer_ignoresForwardedFor() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            MockHttpServletRequest request = forwardedLogin("direct" + i, "198.51.100." + i);
+            request.setRemoteAddr("192.0.2.1");
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            filter.doFilter(request, response, new MockFilterChain());
+            assertThat(response.getStatus()).isEqualTo(200);
+        }
+        MockHttpServletRequest request = forwardedLogin("direct10", "198.51.100.99");
+        request.setRemoteAddr("192.0.2.1");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        assertThat(response.getStatus()).isEqualTo(429);
+    }
+
+    @Test
+    void otherEndpoints_areNotThrottled() throws Exception {
+        for (int i = 0; i < 20; i++) {
+            MockHttpServletRequest request = new MockHttpServletRequest("GET", "/customer/api/cafes");
+            request.setServletPath("/customer/api/cafes");
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            filter.doFilter(request, response, new MockFilterChain());
+            assertThat(response.getStatus()).isEqualTo(200);
+        }
+    }
+
+    private static MockHttpServletRequest forwardedLogin(String username, String forwardedFor) {
+        MockHttpServletRequest request = login(username);
+        request.setRemoteAddr("10.0.0.5");
+        request.addHeader("X-Forwarded-For", forwardedFor);
+        return request;
+    }
+
+    private static MockHttpServletRequest login(String username) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/auth/api/login");
+        request.setServletPath("/auth/api/login");
+        request.setContentType("application/json");
+        request.setContent(("{\"username\":\"" + username + "\",\"password\":\"x\"}").getBytes(StandardCharsets.UTF_8));
+        return request;
+    }
+}
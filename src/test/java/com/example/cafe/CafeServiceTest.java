@@ -0,0 +1,90 @@
+package com.example.cafe;
+
+import com.example.cafe.model.Cafe;
+import com.example.cafe.model.User;
+import com.example.cafe.repository.CafeRepository;
+import com.example.cafe.security.CafeOwnershipIndex;
+import com.example.cafe.service.CafeService;
+import com.example.cafe.service.MenuCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+public class CafeServiceTest {
+
+    @Mock
+    private CafeRepository cafeRepository;
+
+    @Mock
+    private MenuCache menuCache;
+
+    private CafeOwnershipIndex cafeOwnershipIndex;
+
+    private CafeService cafeService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(cafeRepository.findCafeManagerIds()).thenReturn(List.of());
+        cafeOwnershipIndex = new CafeOwnershipIndex(cafeRepository);
+        cafeOwnershipIndex.load();
+        cafeService = new CafeService(cafeRepository, menuCache, cafeOwnershipIndex);
+    }
+
+    @Test
+    void createCafe_makesTheManagerAnOwnerAtOnce() {
+        User manager = new User();
+        manager.setId(10L);
+        Cafe cafe = new Cafe(null, "Cafe", "Street 1", "Kyiv", null, null, manager, null, null);
+        when(cafeRepository.save(cafe)).thenAnswer(i -> {
+            cafe.setId(5L);
+            return cafe;
+        });
+
+        cafeService.createCafe(cafe);
+        assertThat(cafeOwnershipIndex.isManagedBy(10L, 5L)).isTrue();
+
+        cafeService.deleteCafe(5L);
+        assertThat(cafeOwnershipIndex.isManagedBy(10L, 5L)).isFalse();
+        verify(cafeRepository).deleteById(5L);
+    }
+
+    @Test
+    void isManagedBy_checksTheDatabaseForCafesAssignedOnAnotherInstance() {
+        when(cafeRepository.existsByIdAndManagerId(7L, 10L)).thenReturn(true);
+
+        assertThat(cafeOwnershipIndex.isManagedBy(10L, 7L)).isTrue();
+        assertThat(cafeOwnershipIndex.isManagedBy(10L, 7L)).isTrue();
+        assertThat(cafeOwnershipIndex.isManagedBy(11L, 7L)).isFalse();
+        verify(cafeRepository, times(1)).existsByIdAndManagerId(7L, 10L);
+    }
+
+    @Test
+    void cafeIdsOf_looksUpManagersTheIndexKnowsNothingOf() {
+        when(cafeRepository.findIdsByManagerId(10L)).thenReturn(List.of(7L, 8L));
+
+        assertThat(cafeOwnershipIndex.cafeIdsOf(10L).toArray()).containsExactlyInAnyOrder(7L, 8L);
+        assertThat(cafeOwnershipIndex.cafeIdsOf(10L).size()).isEqualTo(2);
+        assertThat(cafeOwnershipIndex.isManagedBy(10L, 8L)).isTrue();
+        verify(cafeRepository, times(1)).findIdsByManagerId(10L);
+        verify(cafeRepository, never()).existsByIdAndManagerId(8L, 10L);
+    }
+
+    @Test
+    void reload_dropsGrantsForCafesReassignedOnAnotherInstance() {
+        when(cafeRepository.findCafeManagerIds()).thenReturn(List.<Object[]>of(new Object[]{7L, 10L}));
+        cafeOwnershipIndex.reload();
+        assertThat(cafeOwnershipIndex.isManagedBy(10L, 7L)).isTrue();
+
+        when(cafeRepository.findCafeManagerIds()).thenReturn(List.<Object[]>of(new Object[]{7L, 11L}));
+        cafeOwnershipIndex.reload();
+        assertThat(cafeOwnershipIndex.isManagedBy(10L, 7L)).isFalse();
+        assertThat(cafeOwnershipIndex.cafeIdsOf(11L).contains(7L)).isTrue();
+    }
+}
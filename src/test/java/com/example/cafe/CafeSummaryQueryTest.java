@@ -0,0 +1,57 @@
+package com.example.cafe;
+
+import com.example.cafe.dto.CafeSummary;
+import com.example.cafe.model.Cafe;
+import com.example.cafe.model.User;
+import com.example.cafe.repository.CafeRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@JpaSliceTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+public class CafeSummaryQueryTest {
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private CafeRepository cafeRepository;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < 5; i++) {
+            User manager = new User("manager" + i, "$2a$10$hash", Set.of("MANAGER"));
+            entityManager.persist(manager);
+            entityManager.persist(new Cafe(null, "Cafe " + i, "Street " + i, "Kyiv", null, null, manager, null, null));
+        }
+        entityManager.persist(new Cafe(null, "No manager", null, "Lviv", null, null, null, null, null));
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void publicSummaries_areOneQueryWithoutEntities() {
+        List<CafeSummary> cafes = cafeRepository.findAllSummaries();
+
+        assertThat(cafes).extracting(CafeSummary::name).contains("Cafe 0", "No manager");
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+}
@@ -1,16 +1,35 @@
 package com.example.cafe;
 
+import com.example.cafe.dto.CafeListVersion;
+import com.example.cafe.dto.CafeSummary;
+import com.example.cafe.dto.MenuItemView;
+import com.example.cafe.dto.MenuVersion;
+import com.example.cafe.dto.OrderHistoryRow;
 import com.example.cafe.model.*;
 import com.example.cafe.repository.*;
 import com.example.cafe.controller.*;
+import com.example.cafe.security.UserPrincipal;
+import com.example.cafe.service.MenuCache;
+import com.example.cafe.service.OrderRejectedException;
+import com.example.cafe.service.OrderRejectedException.Reason;
+import com.example.cafe.service.OrderService;
+import com.example.cafe.service.RenderedMenu;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.*;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.ByteArrayOutputStream;
 import java.util.*;
+import java.util.function.Consumer;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.*;
@@ -21,13 +40,19 @@ public class CustomerControllerTest {
     private CafeRepository cafeRepository;
 
     @Mock
-    private MenuItemRepository menuItemRepository;
+    private OrderService orderService;
 
     @Mock
-    private OrderRepository orderRepository;
+    private UserRepository userRepository;
 
     @Mock
-    private UserRepository userRepository;
+    private OrderHistoryRepository orderHistoryRepository;
+
+    @Mock
+    private MenuCache menuCache;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
 
     @InjectMocks
     private CustomerController customerController;
@@ -39,149 +64,93 @@ public class CustomerControllerTest {
 
     @Test
     void getAllCafes_returnsAllCafes() {
-        List<Cafe> cafes = List.of(new Cafe(), new Cafe());
-        when(cafeRepository.findAll()).thenReturn(cafes);
+        List<CafeSummary> cafes = List.of(
+                new CafeSummary(1L, "One", "Street 1", "Kyiv"),
+                new CafeSummary(2L, "Two", "Street 2", "Lviv"));
+        when(cafeRepository.findListVersion()).thenReturn(new CafeListVersion(2L, 3L, 2L));
+        when(cafeRepository.findAllSummaries()).thenReturn(cafes);
 
-        ResponseEntity<List<Cafe>> response = customerController.getAllCafes();
+        ResponseEntity<List<CafeSummary>> response = customerController.getAllCafes(request(null));
 
         assertThat(response.getStatusCodeValue()).isEqualTo(200);
         assertThat(response.getBody()).isEqualTo(cafes);
+        assertThat(response.getHeaders().getETag()).isEqualTo("\"cafes-2-3-2\"");
+        verify(cafeRepository, never()).findAll();
     }
 
     @Test
-    void getMenuByCafe_cafeNotExists_returnsNotFound() {
-        when(cafeRepository.existsById(1L)).thenReturn(false);
+    void getAllCafes_unchanged_returnsNotModifiedWithoutLoading() {
+        when(cafeRepository.findListVersion()).thenReturn(new CafeListVersion(2L, 3L, 2L));
 
-        ResponseEntity<List<MenuItem>> response = customerController.getMenuByCafe(1L);
+        ResponseEntity<List<CafeSummary>> response = customerController.getAllCafes(request("\"cafes-2-3-2\""));
 
-        assertThat(response.getStatusCodeValue()).isEqualTo(404);
+        assertThat(response.getStatusCodeValue()).isEqualTo(304);
         assertThat(response.getBody()).isNull();
+        verify(cafeRepository, never()).findAllSummaries();
     }
 
     @Test
-    void getMenuByCafe_cafeExists_returnsMenu() {
-        when(cafeRepository.existsById(1L)).thenReturn(true);
-        List<MenuItem> menu = List.of(new MenuItem(), new MenuItem());
-        when(menuItemRepository.findByCafeId(1L)).thenReturn(menu);
-
-        ResponseEntity<List<MenuItem>> response = customerController.getMenuByCafe(1L);
-
-        assertThat(response.getStatusCodeValue()).isEqualTo(200);
-        assertThat(response.getBody()).isEqualTo(menu);
-    }
-
-    @Test
-    void createOrder_cafeNull_returnsBadRequest() {
-        Authentication auth = mock(Authentication.class);
-        when(auth.getName()).thenReturn("user1");
-        when(userRepository.findByUsername("user1")).thenReturn(Optional.of(new User()));
-
-        Order order = new Order();
-        order.setCafe(null);
-
-        ResponseEntity<?> response = customerController.createOrder(order, auth);
-
-        assertThat(response.getStatusCodeValue()).isEqualTo(400);
-        assertThat(response.getBody()).isEqualTo("Кафе є обов’язковим");
-    }
-
-    @Test
-    void createOrder_cafeNotFound_returnsBadRequest() {
-        Authentication auth = mock(Authentication.class);
-        when(auth.getName()).thenReturn("user1");
-        when(userRepository.findByUsername("user1")).thenReturn(Optional.of(new User()));
-
-        Cafe cafe = new Cafe();
-        cafe.setId(1L);
-
-        Order order = new Order();
-        order.setCafe(cafe);
-
-        when(cafeRepository.findById(1L)).thenReturn(Optional.empty());
+    void getMenuByCafe_cafeNotExists_returnsNotFound() {
+        when(cafeRepository.findMenuVersion(1L)).thenReturn(Optional.empty());
 
-        ResponseEntity<?> response = customerController.createOrder(order, auth);
+        ResponseEntity<byte[]> response = customerController.getMenuByCafe(1L, request(null));
 
-        assertThat(response.getStatusCodeValue()).isEqualTo(400);
-        assertThat(response.getBody()).isEqualTo("Кафе не знайдено");
+        assertThat(response.getStatusCodeValue()).isEqualTo(404);
+        assertThat(response.getBody()).isNull();
+        verifyNoInteractions(menuCache);
     }
 
     @Test
-    void createOrder_emptyItems_returnsBadRequest() {
-        Authentication auth = mock(Authentication.class);
-        when(auth.getName()).thenReturn("user1");
-        when(userRepository.findByUsername("user1")).thenReturn(Optional.of(new User()));
+    void getMenuByCafe_cafeExists_returnsRenderedMenu() {
+        MenuVersion version = new MenuVersion(1L, 0L, 7L);
+        RenderedMenu menu = RenderedMenu.of(version,
+                List.of(new MenuItemView(100L, "Latte", 5.5, "Coffee", 1L)), new ObjectMapper());
+        when(cafeRepository.findMenuVersion(1L)).thenReturn(Optional.of(version));
+        when(menuCache.menuOf(version)).thenReturn(menu);
 
-        Cafe cafe = new Cafe();
-        cafe.setId(1L);
+        ResponseEntity<byte[]> response = customerController.getMenuByCafe(1L, request("\"menu-1-0-6\""));
 
-        Order order = new Order();
-        order.setCafe(cafe);
-        order.setItems(Collections.emptyList());
-
-        when(cafeRepository.findById(1L)).thenReturn(Optional.of(cafe));
-
-        ResponseEntity<?> response = customerController.createOrder(order, auth);
-
-        assertThat(response.getStatusCodeValue()).isEqualTo(400);
-        assertThat(response.getBody()).isEqualTo("Список позицій замовлення не може бути порожнім");
+        assertThat(response.getStatusCodeValue()).isEqualTo(200);
+        assertThat(response.getBody()).isSameAs(menu.json());
+        assertThat(response.getHeaders().getETag()).isEqualTo("\"menu-1-0-7\"");
     }
 
     @Test
-    void createOrder_menuItemNotFound_returnsBadRequest() {
-        Authentication auth = mock(Authentication.class);
-        when(auth.getName()).thenReturn("user1");
-        when(userRepository.findByUsername("user1")).thenReturn(Optional.of(new User()));
+    void getMenuByCafe_unchanged_returnsNotModifiedWithoutLoading() {
+        when(cafeRepository.findMenuVersion(1L)).thenReturn(Optional.of(new MenuVersion(1L, 0L, 7L)));
 
-        Cafe cafe = new Cafe();
-        cafe.setId(1L);
+        ResponseEntity<byte[]> response = customerController.getMenuByCafe(1L, request("\"menu-1-0-7\""));
 
-        MenuItem item = new MenuItem();
-        item.setId(100L);
-
-        Order order = new Order();
-        order.setCafe(cafe);
-        order.setItems(List.of(item));
-
-        when(cafeRepository.findById(1L)).thenReturn(Optional.of(cafe));
-        when(menuItemRepository.findById(100L)).thenReturn(Optional.empty());
-
-        ResponseEntity<?> response = customerController.createOrder(order, auth);
-
-        assertThat(response.getStatusCodeValue()).isEqualTo(400);
-        assertThat(response.getBody()).isEqualTo("Позицію меню не знайдено: ID = 100");
+        assertThat(response.getStatusCodeValue()).isEqualTo(304);
+        verifyNoInteractions(menuCache);
     }
 
     @Test
-    void createOrder_menuItemNotBelongToCafe_returnsBadRequest() {
+    void createOrder_rejectedByService_returnsBadRequestWithReason() {
         Authentication auth = mock(Authentication.class);
         when(auth.getName()).thenReturn("user1");
         when(userRepository.findByUsername("user1")).thenReturn(Optional.of(new User()));
 
-        Cafe cafe = new Cafe();
-        cafe.setId(1L);
+        Map<OrderRejectedException, String> messages = Map.of(
+                new OrderRejectedException(Reason.CAFE_REQUIRED, "no cafe"), "Кафе є обов’язковим",
+                new OrderRejectedException(Reason.CAFE_NOT_FOUND, "no such cafe"), "Кафе не знайдено",
+                new OrderRejectedException(Reason.NO_ITEMS, "no items"), "Список позицій замовлення не може бути порожнім",
+                new OrderRejectedException(Reason.MENU_ITEM_NOT_FOUND, 100L, "no such item"), "Позицію меню не знайдено: ID = 100",
+                new OrderRejectedException(Reason.MENU_ITEM_NOT_FOUND, "item without id"), "Позицію меню не знайдено: ID = null",
+                new OrderRejectedException(Reason.MENU_ITEM_FROM_OTHER_CAFE, 100L, "other cafe"), "Позиція не належить до вибраного кафе");
 
-        Cafe otherCafe = new Cafe();
-        otherCafe.setId(2L);
+        messages.forEach((rejection, message) -> {
+            when(orderService.placeOrder(any(Order.class))).thenThrow(rejection);
 
-        MenuItem item = new MenuItem();
-        item.setId(100L);
-        item.setCafe(otherCafe);
+            ResponseEntity<?> response = customerController.createOrder(new Order(), auth);
 
-        Order order = new Order();
-        order.setCafe(cafe);
-        order.setItems(List.of(item));
-
-        when(cafeRepository.findById(1L)).thenReturn(Optional.of(cafe));
-        when(menuItemRepository.findById(100L)).thenReturn(Optional.of(item));
-
-        ResponseEntity<?> response = customerController.createOrder(order, auth);
-
-        assertThat(response.getStatusCodeValue()).isEqualTo(400);
-        assertThat(response.getBody()).isEqualTo("Позиція не належить до вибраного кафе");
+            assertThat(response.getStatusCodeValue()).isEqualTo(400);
+            assertThat(response.getBody()).isEqualTo(message);
+        });
     }
 
     @Test
-    void createOrder_validOrder_returnsSavedOrder() {
+    void createOrder_validOrder_placesOnlyTheClientChoicesForTheCurrentUser() {
         Authentication auth = mock(Authentication.class);
         when(auth.getName()).thenReturn("user1");
 
@@ -193,64 +162,84 @@ public class CustomerControllerTest {
 
         MenuItem item = new MenuItem();
         item.setId(100L);
-        item.setPrice(5.5);
-        item.setCafe(cafe);
 
         Order orderRequest = new Order();
+        orderRequest.setId(99L);
+        orderRequest.setTotalAmount(0.01);
         orderRequest.setCafe(cafe);
         orderRequest.setItems(List.of(item));
 
         when(userRepository.findByUsername("user1")).thenReturn(Optional.of(user));
-        when(cafeRepository.findById(1L)).thenReturn(Optional.of(cafe));
-        when(menuItemRepository.findById(100L)).thenReturn(Optional.of(item));
-        when(orderRepository.save(any(Order.class))).thenAnswer(i -> i.getArgument(0));
+        when(orderService.placeOrder(any(Order.class))).thenAnswer(i -> i.getArgument(0));
 
         ResponseEntity<?> response = customerController.createOrder(orderRequest, auth);
 
         assertThat(response.getStatusCodeValue()).isEqualTo(200);
-        Order savedOrder = (Order) response.getBody();
-        assertThat(savedOrder.getUser()).isEqualTo(user);
-        assertThat(savedOrder.getCafe()).isEqualTo(cafe);
-        assertThat(savedOrder.getItems()).containsExactly(item);
-        assertThat(savedOrder.getTotalAmount()).isEqualTo(5.5);
+        ArgumentCaptor<Order> placed = ArgumentCaptor.forClass(Order.class);
+        verify(orderService).placeOrder(placed.capture());
+        assertThat(placed.getValue()).isSameAs(response.getBody());
+        assertThat(placed.getValue().getId()).isNull();
+        assertThat(placed.getValue().getTotalAmount()).isZero();
+        assertThat(placed.getValue().getUser()).isEqualTo(user);
+        assertThat(placed.getValue().getCafe()).isSameAs(cafe);
+        assertThat(placed.getValue().getItems()).containsExactly(item);
     }
 
     @Test
-    void getUserOrders_returnsOrderList() {
+    void getUserOrders_streamsRowsAsJsonArray() throws Exception {
         Authentication auth = mock(Authentication.class);
         when(auth.getName()).thenReturn("user1");
 
         User user = new User();
         user.setId(10L);
 
-        Cafe cafe = new Cafe();
-        cafe.setName("CafeTest");
-
-        MenuItem item1 = new MenuItem();
-        item1.setName("Coffee");
-
-        MenuItem item2 = new MenuItem();
-        item2.setName("Cake");
-
-        Order order = new Order();
-        order.setId(5L);
-        order.setCafe(cafe);
-        order.setTotalAmount(15.0);
-        order.setItems(List.of(item1, item2));
-
         when(userRepository.findByUsername("user1")).thenReturn(Optional.of(user));
-        when(orderRepository.findByUserId(user.getId())).thenReturn(List.of(order));
+        doAnswer(invocation -> {
+            Consumer<OrderHistoryRow> consumer = invocation.getArgument(1);
+            consumer.accept(new OrderHistoryRow(5L, "CafeTest", 15.0, List.of("Coffee", "Cake x2")));
+            consumer.accept(new OrderHistoryRow(6L, "CafeTest", 4.0, List.of()));
+            return null;
+        }).when(orderHistoryRepository).forEachByUserId(eq(10L), any());
 
-        ResponseEntity<List<Map<String, Object>>> response = customerController.getUserOrders(auth);
+        ResponseEntity<StreamingResponseBody> response = customerController.getUserOrders(auth);
 
         assertThat(response.getStatusCodeValue()).isEqualTo(200);
-        List<Map<String, Object>> orders = response.getBody();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
 
-        assertThat(orders).hasSize(1);
+        List<Map<String, Object>> orders = objectMapper.readValue(out.toByteArray(), new TypeReference<>() {});
+        assertThat(orders).hasSize(2);
         Map<String, Object> orderMap = orders.get(0);
-        assertThat(orderMap.get("id")).isEqualTo(5L);
+        assertThat(orderMap.get("id")).isEqualTo(5);
         assertThat(orderMap.get("cafeName")).isEqualTo("CafeTest");
         assertThat(orderMap.get("totalAmount")).isEqualTo(15.0);
-        assertThat(orderMap.get("itemNames")).isEqualTo(List.of("Coffee", "Cake"));
+        assertThat(orderMap.get("itemNames")).isEqualTo(List.of("Coffee", "Cake x2"));
+        assertThat(orders.get(1).get("itemNames")).isEqualTo(List.of());
+        verifyNoInteractions(orderService);
+    }
+
+    @Test
+    void getUserOrders_claimsPrincipal_skipsUserLookup() throws Exception {
+        UserPrincipal principal = new UserPrincipal(10L, "user1", null, true, 0, Role.CUSTOMER.getMask());
+        Authentication auth = mock(Authentication.class);
+        when(auth.getName()).thenReturn("user1");
+        when(auth.getPrincipal()).thenReturn(principal);
+
+        ResponseEntity<StreamingResponseBody> response = customerController.getUserOrders(auth);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+
+        assertThat(response.getStatusCodeValue()).isEqualTo(200);
+        assertThat(out.toString()).isEqualTo("[]");
+        verify(orderHistoryRepository).forEachByUserId(eq(10L), any());
+        verifyNoInteractions(userRepository);
+    }
+
+    private static ServletWebRequest request(String ifNoneMatch) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/customer/cafes");
+        if (ifNoneMatch != null) {
+            request.addHeader("If-None-Match", ifNoneMatch);
+        }
+        return new ServletWebRequest(request, new MockHttpServletResponse());
     }
 }
@@ -0,0 +1,89 @@
+package com.example.cafe;
+
+import com.example.cafe.dto.CafeListVersion;
+import com.example.cafe.dto.MenuVersion;
+import com.example.cafe.model.Cafe;
+import com.example.cafe.model.Order;
+import com.example.cafe.repository.CafeRepository;
+import com.example.cafe.repository.OrderRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Hibernate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@JpaSliceTest
+public class EntityVersionTest {
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private CafeRepository cafeRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    private Cafe cafe;
+
+    @BeforeEach
+    void setUp() {
+        cafe = new Cafe(null, "Cafe", "Street 1", "Kyiv", null, null, null, null, null);
+        entityManager.persist(cafe);
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void cafeUpdate_movesCafeAndListVersions() {
+        MenuVersion before = cafeRepository.findMenuVersion(cafe.getId()).orElseThrow();
+        CafeListVersion listBefore = cafeRepository.findListVersion();
+
+        Cafe loaded = cafeRepository.findById(cafe.getId()).orElseThrow();
+        loaded.setName("Renamed");
+        cafeRepository.saveAndFlush(loaded);
+        entityManager.clear();
+
+        MenuVersion after = cafeRepository.findMenuVersion(cafe.getId()).orElseThrow();
+        assertThat(after.cafeVersion()).isEqualTo(before.cafeVersion() + 1);
+        assertThat(after.menuVersion()).isEqualTo(before.menuVersion());
+        assertThat(after.eTag()).isNotEqualTo(before.eTag());
+        assertThat(cafeRepository.findListVersion().eTag()).isNotEqualTo(listBefore.eTag());
+    }
+
+    @Test
+    void incrementMenuVersions_leavesCafeVersionAlone() {
+        MenuVersion before = cafeRepository.findMenuVersion(cafe.getId()).orElseThrow();
+        CafeListVersion listBefore = cafeRepository.findListVersion();
+
+        assertThat(cafeRepository.incrementMenuVersions(List.of(cafe.getId(), 999L))).isEqualTo(1);
+        entityManager.clear();
+
+        MenuVersion after = cafeRepository.findMenuVersion(cafe.getId()).orElseThrow();
+        assertThat(after.menuVersion()).isEqualTo(before.menuVersion() + 1);
+        assertThat(after.cafeVersion()).isEqualTo(before.cafeVersion());
+        assertThat(cafeRepository.findListVersion()).isEqualTo(listBefore);
+        assertThat(cafeRepository.findMenuVersion(999L)).isEmpty();
+    }
+
+    @Test
+    void orderCanReferenceCafeByIdOnly() throws Exception {
+        Order order = new Order();
+        order.setCafe(cafeRepository.getReferenceById(cafe.getId()));
+        order.addLine(1L, "Latte", 5.5, 1);
+
+        orderRepository.saveAndFlush(order);
+        assertThat(Hibernate.isInitialized(order.getCafe())).isFalse();
+        ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+        assertThat(objectMapper.readTree(objectMapper.writeValueAsString(order)).at("/cafe/name").asText())
+                .isEqualTo("Cafe");
+        entityManager.clear();
+
+        assertThat(orderRepository.findById(order.getId()).orElseThrow().getCafe().getName()).isEqualTo("Cafe");
+    }
+}
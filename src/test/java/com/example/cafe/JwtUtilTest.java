@@ -0,0 +1,121 @@
+package com.example.cafe;
+
+import com.example.cafe.model.Role;
+import com.example.cafe.security.UserPrincipal;
+import com.example.cafe.util.JwtUtil;
+import com.example.cafe.util.VerifiedToken;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class JwtUtilTest {
+
+    private static final String SECRET = "test-secret-test-secret-test-secret-test-secret-test-secret-0123";
+
+    private JwtUtil jwtUtil;
+
+    @BeforeEach
+    public void setup() {
+        jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "secret", SECRET);
+        ReflectionTestUtils.setField(jwtUtil, "jwtExpirationInMs", 60_000L);
+        ReflectionTestUtils.setField(jwtUtil, "verifiedCacheSize", 100L);
+        jwtUtil.init();
+    }
+
+    private static UserPrincipal customer() {
+        return new UserPrincipal(10L, "user1", null, true, 3, Role.CUSTOMER.getMask());
+    }
+
+    @Test
+    void verify_validToken_returnsSubjectAndRoles() {
+        String token = jwtUtil.generateToken(customer());
+
+        VerifiedToken verified = jwtUtil.verify(token);
+
+        assertThat(verified.getSubject()).isEqualTo("user1");
+        assertThat(verified.getUserId()).isEqualTo(10L);
+        assertThat(verified.getSecurityVersion()).isEqualTo(3);
+        assertThat(verified.getAuthorities()).extracting(GrantedAuthority::getAuthority)
+                .containsExactly("ROLE_CUSTOMER");
+        assertThat(verified.isExpired(System.currentTimeMillis())).isFalse();
+    }
+
+    @Test
+    void verify_sameTokenTwice_servedFromCache() {
+        String token = jwtUtil.generateToken(customer());
+
+        VerifiedToken first = jwtUtil.verify(token);
+        VerifiedToken second = jwtUtil.verify(token);
+
+        assertThat(second).isSameAs(first);
+    }
+
+    @Test
+    void generateToken_usesConfiguredExpirationAndUniqueTokenId() {
+        long before = System.currentTimeMillis();
+
+        VerifiedToken first = jwtUtil.verify(jwtUtil.generateToken(customer()));
+        VerifiedToken second = jwtUtil.verify(jwtUtil.generateToken(customer()));
+
+        assertThat(first.getTokenId()).isNotNull().isNotEqualTo(second.getTokenId());
+        assertThat(first.getExpiresAtMillis()).isBetween(before + 59_000, before + 61_000);
+    }
+
+    @Test
+    void verify_tamperedToken_throws() {
+        String token = jwtUtil.generateToken(customer());
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BB" : "AA");
+
+        assertThatThrownBy(() -> jwtUtil.verify(tampered)).isInstanceOf(JwtException.class);
+    }
+
+    @Test
+    void verify_expiredToken_throws() {
+        String token = Jwts.builder()
+                .setSubject("user1")
+                .setExpiration(new Date(System.currentTimeMillis() - 1000))
+                .signWith(Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8)), SignatureAlgorithm.HS512)
+                .compact();
+
+        assertThatThrownBy(() -> jwtUtil.verify(token)).isInstanceOf(ExpiredJwtException.class);
+    }
+
+    @Test
+    void verify_roleMaskClaim_mapsToSharedAuthorities() {
+        UserPrincipal manager = new UserPrincipal(11L, "manager1", null, true, 0,
+                Role.MANAGER.getMask() | Role.CUSTOMER.getMask());
+
+        VerifiedToken verified = jwtUtil.verify(jwtUtil.generateToken(manager));
+
+        assertThat(verified.getRoleMask()).isEqualTo(Role.MANAGER.getMask() | Role.CUSTOMER.getMask());
+        assertThat(verified.getAuthorities()).extracting(GrantedAuthority::getAuthority)
+                .containsExactly("ROLE_MANAGER", "ROLE_CUSTOMER");
+        assertThat(verified.getAuthorities()).isSameAs(manager.getAuthorities());
+    }
+
+    @Test
+    void verify_legacyRolesClaim_isConvertedToMask() {
+        String token = Jwts.builder()
+                .claim("roles", List.of("ROLE_ADMIN"))
+                .setSubject("admin")
+                .setExpiration(new Date(System.currentTimeMillis() + 60_000))
+                .signWith(Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8)), SignatureAlgorithm.HS512)
+                .compact();
+
+        assertThat(jwtUtil.verify(token).getRoleMask()).isEqualTo(Role.ADMIN.getMask());
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.cafe;
+
+import com.example.cafe.util.LongHashSet;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class LongHashSetTest {
+
+    @Test
+    void addContainsRemove() {
+        LongHashSet set = new LongHashSet();
+
+        assertThat(set.add(7L)).isTrue();
+        assertThat(set.add(7L)).isFalse();
+        assertThat(set.contains(7L)).isTrue();
+        assertThat(set.contains(8L)).isFalse();
+
+        assertThat(set.remove(7L)).isTrue();
+        assertThat(set.remove(7L)).isFalse();
+        assertThat(set.isEmpty()).isTrue();
+    }
+
+    @Test
+    void matchesJavaSetUnderRandomOperations() {
+        LongHashSet set = new LongHashSet();
+        Set<Long> expected = new HashSet<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 20_000; i++) {
+            long value = 1 + random.nextInt(500);
+            if (random.nextBoolean()) {
+                assertThat(set.add(value)).isEqualTo(expected.add(value));
+            } else {
+                assertThat(set.remove(value)).isEqualTo(expected.remove(value));
+            }
+        }
+
+        assertThat(set.size()).isEqualTo(expected.size());
+        for (long value = 1; value <= 500; value++) {
+            assertThat(set.contains(value)).isEqualTo(expected.contains(value));
+        }
+    }
+
+    @Test
+    void copyIsIndependent() {
+        LongHashSet original = new LongHashSet();
+        original.add(1L);
+
+        LongHashSet copy = new LongHashSet(original);
+        copy.add(2L);
+
+        assertThat(original.contains(2L)).isFalse();
+        assertThat(copy.toArray()).containsExactlyInAnyOrder(1L, 2L);
+    }
+
+    @Test
+    void nonPositiveValuesAreRejected() {
+        LongHashSet set = new LongHashSet();
+
+        assertThatThrownBy(() -> set.add(0L)).isInstanceOf(IllegalArgumentException.class);
+        assertThat(set.contains(0L)).isFalse();
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.cafe;
+
+import com.example.cafe.util.LongIntHashMap;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class LongIntHashMapTest {
+
+    @Test
+    void putGetOverwrite() {
+        LongIntHashMap map = new LongIntHashMap();
+
+        map.put(7L, 3);
+        assertThat(map.get(7L)).isEqualTo(3);
+        assertThat(map.get(8L)).isEqualTo(-1);
+
+        map.put(7L, 4);
+        assertThat(map.get(7L)).isEqualTo(4);
+        assertThat(map.size()).isEqualTo(1);
+    }
+
+    @Test
+    void matchesJavaMapWhileGrowing() {
+        LongIntHashMap map = new LongIntHashMap(0);
+        Map<Long, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 20_000; i++) {
+            long key = 1 + random.nextInt(5_000);
+            map.put(key, i);
+            expected.put(key, i);
+        }
+
+        assertThat(map.size()).isEqualTo(expected.size());
+        for (long key = 1; key <= 5_000; key++) {
+            assertThat(map.get(key)).isEqualTo(expected.getOrDefault(key, -1));
+        }
+    }
+
+    @Test
+    void rejectsNonPositiveKeys() {
+        LongIntHashMap map = new LongIntHashMap();
+
+        assertThat(map.get(0L)).isEqualTo(-1);
+        assertThatThrownBy(() -> map.put(0L, 1)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> map.put(-5L, 1)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
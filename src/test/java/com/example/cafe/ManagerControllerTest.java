@@ -1,13 +1,26 @@
 package com.example.cafe;
 
+import com.example.cafe.dto.ManagerOrderRow;
+import com.example.cafe.dto.MenuItemView;
+import com.example.cafe.dto.MenuVersion;
+import com.example.cafe.dto.OrderPage;
 import com.example.cafe.model.*;
 import com.example.cafe.repository.*;
 import com.example.cafe.controller.*;
+import com.example.cafe.security.CafeOwnershipIndex;
+import com.example.cafe.service.MenuCache;
+import com.example.cafe.service.MenuCatalog;
+import com.example.cafe.service.RenderedMenu;
+import com.example.cafe.util.LongHashSet;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.*;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.web.context.request.ServletWebRequest;
 
 import java.util.*;
 
@@ -28,6 +41,15 @@ public class ManagerControllerTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private CafeOwnershipIndex cafeOwnershipIndex;
+
+    @Mock
+    private MenuCache menuCache;
+
+    @Mock
+    private MenuCatalog menuCatalog;
+
     @InjectMocks
     private ManagerController managerController;
 
@@ -70,7 +92,7 @@ public class ManagerControllerTest {
         when(userDetails.getUsername()).thenReturn("manager1");
         when(userRepository.findByUsername("manager1")).thenReturn(Optional.empty());
 
-        ResponseEntity<?> response = managerController.getCafeMenu(1L, userDetails);
+        ResponseEntity<?> response = managerController.getCafeMenu(1L, userDetails, webRequest());
 
         assertThat(response.getStatusCodeValue()).isEqualTo(403);
         assertThat(response.getBody()).isEqualTo("Менеджера не знайдено");
@@ -79,21 +101,40 @@ public class ManagerControllerTest {
     @Test
     void getCafeMenu_cafeOwned_returnsMenu() {
         User manager = new User();
-        Cafe cafe = new Cafe();
-        cafe.setManager(manager);
+        manager.setId(5L);
 
-        List<MenuItem> menu = List.of(new MenuItem(), new MenuItem());
+        RenderedMenu menu = RenderedMenu.of(new MenuVersion(1L, 0L, 0L),
+                List.of(new MenuItemView(100L, "Latte", 5.5, "Coffee", 1L)), new ObjectMapper());
 
         UserDetails userDetails = mock(UserDetails.class);
         when(userDetails.getUsername()).thenReturn("manager1");
         when(userRepository.findByUsername("manager1")).thenReturn(Optional.of(manager));
-        when(cafeRepository.findById(1L)).thenReturn(Optional.of(cafe));
-        when(menuItemRepository.findByCafeId(1L)).thenReturn(menu);
+        when(cafeOwnershipIndex.isManagedBy(5L, 1L)).thenReturn(true);
+        when(cafeRepository.findMenuVersion(1L)).thenReturn(Optional.of(menu.version()));
+        when(menuCache.menuOf(menu.version())).thenReturn(menu);
 
-        ResponseEntity<?> response = managerController.getCafeMenu(1L, userDetails);
+        ResponseEntity<?> response = managerController.getCafeMenu(1L, userDetails, webRequest());
 
         assertThat(response.getStatusCodeValue()).isEqualTo(200);
-        assertThat(response.getBody()).isEqualTo(menu);
+        assertThat(response.getBody()).isSameAs(menu.json());
+        verify(cafeRepository, never()).findById(anyLong());
+    }
+
+    @Test
+    void getCafeMenu_cafeNotOwned_returnsForbidden() {
+        User manager = new User();
+        manager.setId(5L);
+
+        UserDetails userDetails = mock(UserDetails.class);
+        when(userDetails.getUsername()).thenReturn("manager1");
+        when(userRepository.findByUsername("manager1")).thenReturn(Optional.of(manager));
+        when(cafeOwnershipIndex.isManagedBy(5L, 1L)).thenReturn(false);
+
+        ResponseEntity<?> response = managerController.getCafeMenu(1L, userDetails, webRequest());
+
+        assertThat(response.getStatusCodeValue()).isEqualTo(403);
+        assertThat(response.getBody()).isEqualTo("Ця кав'ярня вам не належить");
+        verify(menuCache, never()).menuOf(any(MenuVersion.class));
     }
 
     @Test
@@ -102,7 +143,7 @@ public class ManagerControllerTest {
         when(userDetails.getUsername()).thenReturn("manager1");
         when(userRepository.findByUsername("manager1")).thenReturn(Optional.empty());
 
-        ResponseEntity<?> response = managerController.getOrdersFromManagedCafes(userDetails, null);
+        ResponseEntity<?> response = managerController.getOrdersFromManagedCafes(userDetails, null, null, null, null, null, 50);
 
         assertThat(response.getStatusCodeValue()).isEqualTo(403);
         assertThat(response.getBody()).isEqualTo("Менеджера не знайдено");
@@ -111,48 +152,89 @@ public class ManagerControllerTest {
     @Test
     void getOrdersFromManagedCafes_cafeIdNotOwned_returnsForbidden() {
         User manager = new User();
-        Cafe managedCafe = new Cafe();
-        managedCafe.setId(2L);
-
+        manager.setId(5L);
         UserDetails userDetails = mock(UserDetails.class);
         when(userDetails.getUsername()).thenReturn("manager1");
         when(userRepository.findByUsername("manager1")).thenReturn(Optional.of(manager));
-        when(cafeRepository.findByManager(manager)).thenReturn(List.of(managedCafe));
+        when(cafeOwnershipIndex.isManagedBy(5L, 1L)).thenReturn(false);
 
-        ResponseEntity<?> response = managerController.getOrdersFromManagedCafes(userDetails, 1L);
+        ResponseEntity<?> response = managerController.getOrdersFromManagedCafes(userDetails, 1L, null, null, null, null, 50);
 
         assertThat(response.getStatusCodeValue()).isEqualTo(403);
         assertThat(response.getBody()).isEqualTo("Ця кав'ярня вам не належить");
     }
 
     @Test
-    void getOrdersFromManagedCafes_validCafe_returnsOrders() {
+    void getOrdersFromManagedCafes_fullPage_returnsCursorOfLastOrder() {
         User manager = new User();
-        Cafe cafe1 = new Cafe();
-        cafe1.setId(1L);
-        Cafe cafe2 = new Cafe();
-        cafe2.setId(2L);
+        manager.setId(5L);
 
+        User customer = new User("anna", "$2a$10$hash", Set.of("ROLE_CUSTOMER"));
+        customer.setId(7L);
         Order order1 = new Order();
-        order1.setCafe(cafe1);
+        order1.setId(30L);
+        order1.setUser(customer);
         Order order2 = new Order();
-        order2.setCafe(cafe2);
+        order2.setId(20L);
         Order order3 = new Order();
-        order3.setCafe(null); // no cafe
-
-        List<Order> allOrders = List.of(order1, order2, order3);
+        order3.setId(10L);
 
         UserDetails userDetails = mock(UserDetails.class);
         when(userDetails.getUsername()).thenReturn("manager1");
         when(userRepository.findByUsername("manager1")).thenReturn(Optional.of(manager));
-        when(cafeRepository.findByManager(manager)).thenReturn(List.of(cafe1, cafe2));
-        when(orderRepository.findAll()).thenReturn(allOrders);
+        LongHashSet managedCafes = new LongHashSet();
+        managedCafes.add(1L);
+        managedCafes.add(2L);
+        when(cafeOwnershipIndex.cafeIdsOf(5L)).thenReturn(managedCafes);
+        when(orderRepository.findPage(any(), eq(3))).thenReturn(List.of(order1, order2, order3));
 
-        ResponseEntity<?> response = managerController.getOrdersFromManagedCafes(userDetails, null);
+        ResponseEntity<?> response = managerController.getOrdersFromManagedCafes(userDetails, null, null, null, null, null, 2);
 
         assertThat(response.getStatusCodeValue()).isEqualTo(200);
-        List<Order> resultOrders = (List<Order>) response.getBody();
-        assertThat(resultOrders).containsExactlyInAnyOrder(order1, order2);
+        OrderPage page = (OrderPage) response.getBody();
+        assertThat(page.getOrders()).extracting(ManagerOrderRow::id).containsExactly(30L, 20L);
+        assertThat(page.getOrders().get(0).customerId()).isEqualTo(7L);
+        assertThat(page.getOrders().get(0).customerUsername()).isEqualTo("anna");
+        assertThat(page.getNextCursor()).isEqualTo(20L);
+        verify(orderRepository, never()).findAll();
+    }
+
+    @Test
+    void getOrdersFromManagedCafes_lastPage_hasNoCursor() {
+        User manager = new User();
+        manager.setId(5L);
+
+        Order order = new Order();
+        order.setId(10L);
+
+        UserDetails userDetails = mock(UserDetails.class);
+        when(userDetails.getUsername()).thenReturn("manager1");
+        when(userRepository.findByUsername("manager1")).thenReturn(Optional.of(manager));
+        when(cafeOwnershipIndex.isManagedBy(5L, 1L)).thenReturn(true);
+        when(orderRepository.findPage(any(), eq(51))).thenReturn(List.of(order));
+
+        ResponseEntity<?> response = managerController.getOrdersFromManagedCafes(userDetails, 1L, null, null, null, 20L, 50);
+
+        OrderPage page = (OrderPage) response.getBody();
+        assertThat(page.getOrders()).extracting(ManagerOrderRow::id).containsExactly(10L);
+        assertThat(page.getNextCursor()).isNull();
+    }
+
+    @Test
+    void getOrdersFromManagedCafes_noManagedCafes_skipsQuery() {
+        User manager = new User();
+        manager.setId(5L);
+
+        UserDetails userDetails = mock(UserDetails.class);
+        when(userDetails.getUsername()).thenReturn("manager1");
+        when(userRepository.findByUsername("manager1")).thenReturn(Optional.of(manager));
+        when(cafeOwnershipIndex.cafeIdsOf(5L)).thenReturn(new LongHashSet());
+
+        ResponseEntity<?> response = managerController.getOrdersFromManagedCafes(userDetails, null, null, null, null, null, 50);
+
+        OrderPage page = (OrderPage) response.getBody();
+        assertThat(page.getOrders()).isEmpty();
+        verify(orderRepository, never()).findPage(any(), anyInt());
     }
 
     @Test
@@ -251,5 +333,8 @@ public class ManagerControllerTest {
         MenuItem saved = (MenuItem) response.getBody();
         assertThat(saved.getCafe()).isEqualTo(cafe);
     }
-}
 
+    private static ServletWebRequest webRequest() {
+        return new ServletWebRequest(new MockHttpServletRequest("GET", "/"), new MockHttpServletResponse());
+    }
+}
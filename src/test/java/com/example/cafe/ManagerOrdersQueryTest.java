@@ -0,0 +1,99 @@
+package com.example.cafe;
+
+import com.example.cafe.model.Cafe;
+import com.example.cafe.model.MenuItem;
+import com.example.cafe.model.Order;
+import com.example.cafe.model.User;
+import com.example.cafe.repository.OrderRepository;
+import com.example.cafe.repository.OrderSpecifications;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@JpaSliceTest
+public class ManagerOrdersQueryTest {
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    private Cafe mine;
+    private Cafe other;
+    private User alice;
+
+    @BeforeEach
+    void setUp() {
+        mine = cafe("Mine");
+        other = cafe("Other");
+        alice = new User("alice", "x", Set.of("CUSTOMER"));
+        User bob = new User("bob", "x", Set.of("CUSTOMER"));
+        entityManager.persist(alice);
+        entityManager.persist(bob);
+
+        MenuItem coffee = new MenuItem(null, "Coffee", 4.0, "Drinks", mine, null);
+        entityManager.persist(coffee);
+
+        for (int i = 1; i <= 5; i++) {
+            order(mine, i % 2 == 0 ? bob : alice, coffee, i);
+            order(other, alice, coffee, i);
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void keysetPages_walkOnlyManagedCafesNewestFirst() {
+        List<Order> first = orderRepository.findPage(scope(null), 3);
+        assertThat(first).hasSize(3);
+        assertThat(first).allMatch(o -> o.getCafe().getId().equals(mine.getId()));
+        assertThat(first.get(0).getId()).isGreaterThan(first.get(1).getId());
+
+        List<Order> second = orderRepository.findPage(scope(first.get(2).getId()), 3);
+        assertThat(second).hasSize(2);
+        assertThat(second.get(0).getId()).isLessThan(first.get(2).getId());
+        assertThat(second.get(0).getItemNames()).isNotEmpty();
+    }
+
+    @Test
+    void optionalFilters_narrowThePage() {
+        Specification<Order> spec = scope(null)
+                .and(OrderSpecifications.customer("alice"))
+                .and(OrderSpecifications.totalAtLeast(8.0));
+
+        List<Order> orders = orderRepository.findPage(spec, 10);
+
+        assertThat(orders).extracting(o -> o.getUser().getUsername()).containsOnly("alice");
+        assertThat(orders).extracting(Order::getTotalAmount).containsExactly(20.0, 12.0);
+    }
+
+    private Specification<Order> scope(Long before) {
+        return Specification.where(OrderSpecifications.inCafes(List.of(mine.getId())))
+                .and(OrderSpecifications.idBefore(before))
+                .and(OrderSpecifications.fetchCafeAndUser());
+    }
+
+    private Cafe cafe(String name) {
+        Cafe cafe = new Cafe();
+        cafe.setName(name);
+        entityManager.persist(cafe);
+        return cafe;
+    }
+
+    private void order(Cafe cafe, User user, MenuItem item, int quantity) {
+        Order order = new Order();
+        order.setCafe(cafe);
+        order.setUser(user);
+        order.addLine(item, quantity);
+        order.setTotalAmount(item.getPrice() * quantity);
+        entityManager.persist(order);
+    }
+}
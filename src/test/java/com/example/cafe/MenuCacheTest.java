@@ -0,0 +1,169 @@
+package com.example.cafe;
+
+import com.example.cafe.dto.MenuItemView;
+import com.example.cafe.dto.MenuVersion;
+import com.example.cafe.repository.CafeRepository;
+import com.example.cafe.repository.MenuItemRepository;
+import com.example.cafe.service.MenuCache;
+import com.example.cafe.service.RenderedMenu;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+public class MenuCacheTest {
+
+    private CafeRepository cafeRepository;
+    private MenuItemRepository menuItemRepository;
+    private SimpleMeterRegistry meterRegistry;
+    private MenuCache menuCache;
+
+    @BeforeEach
+    void setUp() {
+        cafeRepository = mock(CafeRepository.class);
+        menuItemRepository = mock(MenuItemRepository.class);
+        meterRegistry = new SimpleMeterRegistry();
+        menuCache = new MenuCache(cafeRepository, menuItemRepository, new ObjectMapper(), 1000, Duration.ofHours(1),
+                meterRegistry);
+    }
+
+    @Test
+    void repeatedReads_renderTheMenuOnce() throws Exception {
+        MenuVersion version = new MenuVersion(1L, 0L, 0L);
+        when(cafeRepository.findMenuVersion(1L)).thenReturn(Optional.of(version));
+        when(menuItemRepository.findViewsByCafeId(1L)).thenReturn(List.of(
+                new MenuItemView(10L, "Latte", 5.5, "Coffee", 1L),
+                new MenuItemView(11L, "Cake", 7.0, "Dessert", 1L)));
+
+        RenderedMenu first = menuCache.menuOf(version);
+        RenderedMenu second = menuCache.menuOf(version);
+
+        assertThat(second).isSameAs(first);
+        assertThat(first.size()).isEqualTo(2);
+        assertThat(new String(first.json(), StandardCharsets.UTF_8)).isEqualTo(
+                "[{\"id\":10,\"name\":\"Latte\",\"price\":5.5,\"category\":\"Coffee\",\"cafeId\":1},"
+                        + "{\"id\":11,\"name\":\"Cake\",\"price\":7.0,\"category\":\"Dessert\",\"cafeId\":1}]");
+        verify(menuItemRepository, times(1)).findViewsByCafeId(1L);
+        assertThat(menuCache.stats().hitCount()).isEqualTo(1);
+        assertThat(menuCache.stats().loadCount()).isEqualTo(1);
+        assertThat(menuCache.stats().totalLoadTime()).isPositive();
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "menu").tag("result", "hit").functionCounter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void toResponse_sendsGzipOnlyWhenAccepted() throws Exception {
+        List<MenuItemView> items = new ArrayList<>();
+        for (long id = 1; id <= 50; id++) {
+            items.add(new MenuItemView(id, "Item " + id, 2.5, "Coffee", 1L));
+        }
+        MenuVersion version = new MenuVersion(1L, 0L, 3L);
+        when(cafeRepository.findMenuVersion(1L)).thenReturn(Optional.of(version));
+        when(menuItemRepository.findViewsByCafeId(1L)).thenReturn(items);
+        RenderedMenu menu = menuCache.menuOf(version);
+
+        ResponseEntity<byte[]> plain = menu.toResponse(request(null, null));
+        ResponseEntity<byte[]> gzipped = menu.toResponse(request("gzip, deflate, br", null));
+        ResponseEntity<byte[]> refused = menu.toResponse(request("gzip;q=0, deflate", null));
+        ResponseEntity<byte[]> unchanged = menu.toResponse(request("gzip", "\"menu-1-0-3\""));
+
+        assertThat(plain.getBody()).isSameAs(menu.json());
+        assertThat(plain.getHeaders().getETag()).isEqualTo("\"menu-1-0-3\"");
+        assertThat(plain.getHeaders().getVary()).containsExactly("Accept-Encoding");
+        assertThat(gzipped.getHeaders().getFirst("Content-Encoding")).isEqualTo("gzip");
+        assertThat(gzipped.getBody()).hasSizeLessThan(menu.json().length);
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzipped.getBody()))) {
+            assertThat(in.readAllBytes()).isEqualTo(menu.json());
+        }
+        assertThat(refused.getBody()).isSameAs(menu.json());
+        assertThat(unchanged.getStatusCodeValue()).isEqualTo(304);
+        assertThat(unchanged.getBody()).isNull();
+    }
+
+    @Test
+    void evict_reloadsOnlyThatCafe() {
+        when(cafeRepository.findMenuVersion(anyLong()))
+                .thenAnswer(i -> Optional.of(new MenuVersion(i.getArgument(0), 0L, 0L)));
+        when(menuItemRepository.findViewsByCafeId(anyLong())).thenReturn(List.of());
+        MenuVersion first = new MenuVersion(1L, 0L, 0L);
+        MenuVersion second = new MenuVersion(2L, 0L, 0L);
+        menuCache.menuOf(first);
+        menuCache.menuOf(second);
+
+        menuCache.evict(1L);
+        menuCache.menuOf(first);
+        menuCache.menuOf(second);
+
+        verify(menuItemRepository, times(2)).findViewsByCafeId(1L);
+        verify(menuItemRepository, times(1)).findViewsByCafeId(2L);
+        verify(cafeRepository).incrementMenuVersions(List.of(1L));
+    }
+
+    @Test
+    void menuOfVersion_reloadsOnlyWhenTheVersionMoved() {
+        MenuVersion current = new MenuVersion(1L, 0L, 4L);
+        when(cafeRepository.findMenuVersion(1L)).thenReturn(Optional.of(current));
+        when(menuItemRepository.findViewsByCafeId(1L)).thenReturn(List.of());
+
+        menuCache.menuOf(current);
+        menuCache.menuOf(current);
+        verify(menuItemRepository, times(1)).findViewsByCafeId(1L);
+
+        // Another instance changed the menu: this one still holds version 4.
+        MenuVersion moved = new MenuVersion(1L, 0L, 5L);
+        when(cafeRepository.findMenuVersion(1L)).thenReturn(Optional.of(moved));
+        assertThat(menuCache.menuOf(moved).version()).isEqualTo(moved);
+        menuCache.menuOf(moved);
+        verify(menuItemRepository, times(2)).findViewsByCafeId(1L);
+    }
+
+    @Test
+    void menuOfVersion_laggingVersion_keepsTheNewerMenu() {
+        MenuVersion current = new MenuVersion(1L, 0L, 5L);
+        when(cafeRepository.findMenuVersion(1L)).thenReturn(Optional.of(current));
+        when(menuItemRepository.findViewsByCafeId(1L)).thenReturn(List.of());
+        menuCache.menuOf(current);
+
+        // Read from a replica that has not seen the last menu change yet.
+        assertThat(menuCache.menuOf(new MenuVersion(1L, 0L, 4L)).version()).isEqualTo(current);
+        verify(menuItemRepository, times(1)).findViewsByCafeId(1L);
+    }
+
+    @Test
+    void unknownCafe_returnsNullAndIsNotCached() {
+        when(cafeRepository.findMenuVersion(9L)).thenReturn(Optional.empty());
+
+        MenuVersion deleted = new MenuVersion(9L, 0L, 0L);
+        assertThat(menuCache.menuOf(deleted)).isNull();
+        assertThat(menuCache.menuOf(deleted)).isNull();
+
+        verify(cafeRepository, times(2)).findMenuVersion(9L);
+        verify(menuItemRepository, never()).findViewsByCafeId(anyLong());
+    }
+
+    private static ServletWebRequest request(String acceptEncoding, String ifNoneMatch) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/customer/cafes/1/menu");
+        if (acceptEncoding != null) {
+            request.addHeader("Accept-Encoding", acceptEncoding);
+        }
+        if (ifNoneMatch != null) {
+            request.addHeader("If-None-Match", ifNoneMatch);
+        }
+        return new ServletWebRequest(request, new MockHttpServletResponse());
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.cafe;
+
+import com.example.cafe.dto.OrderableItem;
+import com.example.cafe.model.Cafe;
+import com.example.cafe.model.MenuItem;
+import com.example.cafe.model.Order;
+import com.example.cafe.repository.MenuItemRepository;
+import com.example.cafe.service.MenuCatalog;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+public class MenuCatalogTest {
+
+    private MenuCatalog catalog;
+
+    @BeforeEach
+    void setUp() {
+        MenuItemRepository menuItemRepository = mock(MenuItemRepository.class);
+        when(menuItemRepository.findAllOrderable()).thenReturn(List.of(
+                new OrderableItem(100L, "Latte", 5.5, 1L),
+                new OrderableItem(101L, "Croissant", 3.0, 1L),
+                new OrderableItem(200L, "Tea", 2.0, 2L)));
+        catalog = new MenuCatalog(menuItemRepository);
+        catalog.load();
+    }
+
+    @Test
+    void addLines_pricesItemsAndMergesRepeats() {
+        Order order = new Order();
+
+        assertThat(catalog.addLines(order, 1L, List.of(item(100L), item(101L), item(100L)))).isTrue();
+
+        assertThat(order.getItemNames()).containsExactly("Latte x2", "Croissant");
+        assertThat(order.getLines()).extracting(line -> line.getLineTotal()).containsExactly(11.0, 3.0);
+    }
+
+    @Test
+    void addLines_largeOrder_mergesRepeatsTheSameWay() {
+        List<MenuItem> requested = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            requested.add(item(i % 4 == 0 ? 101L : 100L));
+        }
+        Order order = new Order();
+
+        assertThat(catalog.addLines(order, 1L, requested)).isTrue();
+
+        assertThat(order.getItemNames()).containsExactly("Croissant x10", "Latte x30");
+    }
+
+    @Test
+    void addLines_unknownOrForeignItem_leavesOrderUntouched() {
+        Order order = new Order();
+
+        assertThat(catalog.addLines(order, 1L, List.of(item(100L), item(999L)))).isFalse();
+        assertThat(catalog.addLines(order, 1L, List.of(item(100L), item(200L)))).isFalse();
+        assertThat(catalog.addLines(order, 1L, List.of(item(null)))).isFalse();
+        assertThat(order.getLines()).isEmpty();
+    }
+
+    @Test
+    void writesPublishNewSnapshots() {
+        Cafe cafe = new Cafe();
+        cafe.setId(2L);
+        MenuItem added = item(201L);
+        added.setName("Espresso");
+        added.setPrice(4.0);
+        added.setCafe(cafe);
+
+        catalog.put(added);
+        catalog.putAll(List.of(new OrderableItem(100L, "Latte", 6.0, 1L)));
+
+        Order order = new Order();
+        assertThat(catalog.addLines(order, 2L, List.of(item(201L)))).isTrue();
+        assertThat(catalog.addLines(order, 1L, List.of(item(100L)))).isTrue();
+        assertThat(order.getLines()).extracting(line -> line.getUnitPrice()).containsExactly(4.0, 6.0);
+
+        catalog.removeCafe(2L);
+        assertThat(catalog.addLines(new Order(), 2L, List.of(item(200L)))).isFalse();
+        assertThat(catalog.addLines(new Order(), 1L, List.of(item(101L)))).isTrue();
+    }
+
+    private static MenuItem item(Long id) {
+        MenuItem item = new MenuItem();
+        item.setId(id);
+        return item;
+    }
+}
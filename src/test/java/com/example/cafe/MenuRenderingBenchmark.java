@@ -0,0 +1,97 @@
+package com.example.cafe;
+
+import com.example.cafe.dto.MenuItemView;
+import com.example.cafe.dto.MenuVersion;
+import com.example.cafe.model.Cafe;
+import com.example.cafe.model.MenuItem;
+import com.example.cafe.model.User;
+import com.example.cafe.service.RenderedMenu;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Cost of writing one menu response body: Jackson over the entities, as menus were sent before
+ * (every item drags its cafe and the cafe's manager along), against the bytes {@link RenderedMenu}
+ * keeps. Not a test; run it with
+ * <pre>
+ * mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt -Dmdep.includeScope=test
+ * java -cp target/test-classes:target/classes:$(cat target/cp.txt) com.example.cafe.MenuRenderingBenchmark
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MenuRenderingBenchmark {
+
+    @Param({"20", "200"})
+    private int items;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream(64 * 1024);
+    private List<MenuItem> entities;
+    private RenderedMenu rendered;
+
+    @Setup
+    public void setUp() {
+        User manager = new User();
+        manager.setId(3L);
+        manager.setUsername("manager");
+        manager.setPassword("$2a$10$abcdefghijklmnopqrstuuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ012");
+        Cafe cafe = new Cafe(1L, "Cafe", "Street 1", "Kyiv", null, null, manager, 0L, 0L);
+
+        entities = new ArrayList<>();
+        List<MenuItemView> views = new ArrayList<>();
+        for (long id = 1; id <= items; id++) {
+            entities.add(new MenuItem(id, "Item " + id, 2.5 + id, "Coffee", cafe, 0L));
+            views.add(new MenuItemView(id, "Item " + id, 2.5 + id, "Coffee", 1L));
+        }
+        rendered = RenderedMenu.of(new MenuVersion(1L, 0L, 0L), views, objectMapper);
+    }
+
+    @Benchmark
+    public int entities() throws IOException {
+        out.reset();
+        objectMapper.writeValue(out, entities);
+        return out.size();
+    }
+
+    @Benchmark
+    public int entitiesGzip() throws IOException {
+        out.reset();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            objectMapper.writeValue(gzip, entities);
+        }
+        return out.size();
+    }
+
+    @Benchmark
+    public int preRendered() {
+        out.reset();
+        out.writeBytes(rendered.json());
+        return out.size();
+    }
+
+    @Benchmark
+    public int preRenderedGzip() {
+        out.reset();
+        out.writeBytes(rendered.gzip());
+        return out.size();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(MenuRenderingBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.cafe;
+
+import com.example.cafe.model.Cafe;
+import com.example.cafe.model.MenuItem;
+import com.example.cafe.model.Order;
+import com.example.cafe.repository.OrderRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@JpaSliceTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+public class OrderBatchInsertTest {
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    private Cafe cafe;
+    private List<MenuItem> menu;
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        cafe = new Cafe();
+        cafe.setName("Test cafe");
+        entityManager.persist(cafe);
+
+        menu = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            menu.add(new MenuItem(null, "Item " + i, 10.0 + i, "Drinks", cafe, null));
+        }
+        menu.forEach(entityManager::persist);
+
+        // The pooled optimizer needs two sequence calls before it owns a full block of ids.
+        placeOrder(1);
+        placeOrder(1);
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void orderInsertCost_doesNotGrowWithItemCount() {
+        placeOrder(2);
+        long small = statistics.getPrepareStatementCount();
+        assertThat(statistics.getEntityInsertCount()).isEqualTo(3);
+
+        statistics.clear();
+        placeOrder(20);
+        long large = statistics.getPrepareStatementCount();
+        assertThat(statistics.getEntityInsertCount()).isEqualTo(21);
+
+        assertThat(large).isEqualTo(small);
+        assertThat(large).isLessThanOrEqualTo(2);
+    }
+
+    private void placeOrder(int itemCount) {
+        Order order = new Order();
+        order.setCafe(cafe);
+        for (MenuItem item : menu.subList(0, itemCount)) {
+            order.addLine(item, 1);
+        }
+        orderRepository.save(order);
+        entityManager.flush();
+        entityManager.clear();
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.cafe;
+
+import com.example.cafe.service.OrderExportService;
+import com.example.cafe.service.OrderExportService.Format;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class OrderExportServiceTest {
+
+    @Test
+    void csv_withFilters_rendersTypedLiteralsAndHeader() {
+        String sql = OrderExportService.copySql(Format.CSV, LocalDate.of(2025, 1, 1), LocalDate.of(2025, 1, 31), 7L);
+
+        assertThat(sql).startsWith("copy (select o.id, o.created_at");
+        assertThat(sql).contains("where o.cafe_id = 7 and o.created_at >= date '2025-01-01'"
+                + " and o.created_at < date '2025-01-31' + 1");
+        assertThat(sql).contains("string_agg(");
+        assertThat(sql).endsWith("to stdout with (format csv, header true)");
+    }
+
+    @Test
+    void ndjson_withoutFilters_wrapsRowsInRowToJson() {
+        String sql = OrderExportService.copySql(Format.NDJSON, null, null, null);
+
+        assertThat(sql).startsWith("copy (select row_to_json(t) from (select ");
+        assertThat(sql).doesNotContain("o.cafe_id =").doesNotContain("o.created_at >=");
+        assertThat(sql).contains("array(select ");
+        assertThat(sql).endsWith("with (format csv, quote e'\\x01', delimiter e'\\x02')");
+    }
+
+    @Test
+    void parse_acceptsKnownFormatsOnly() {
+        assertThat(Format.parse(null)).isEqualTo(Format.CSV);
+        assertThat(Format.parse(" NDJSON ")).isEqualTo(Format.NDJSON);
+        assertThat(Format.parse("xml")).isNull();
+    }
+}
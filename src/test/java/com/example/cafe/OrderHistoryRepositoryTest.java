@@ -0,0 +1,108 @@
+package com.example.cafe;
+
+import com.example.cafe.dto.OrderHistoryRow;
+import com.example.cafe.model.Cafe;
+import com.example.cafe.model.MenuItem;
+import com.example.cafe.model.Order;
+import com.example.cafe.model.User;
+import com.example.cafe.repository.OrderHistoryRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@JpaSliceTest
+public class OrderHistoryRepositoryTest {
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void history_isReadWithOneStatement() {
+        Cafe cafe = new Cafe();
+        cafe.setName("CafeTest");
+        entityManager.persist(cafe);
+        User user = new User("alice", "x", Set.of("CUSTOMER"));
+        entityManager.persist(user);
+        MenuItem coffee = new MenuItem(null, "Coffee", 4.0, "Drinks", cafe, null);
+        MenuItem cake = new MenuItem(null, "Cake", 6.0, "Desserts", cafe, null);
+        entityManager.persist(coffee);
+        entityManager.persist(cake);
+        for (int i = 0; i < 10; i++) {
+            Order order = new Order();
+            order.setCafe(cafe);
+            order.setUser(user);
+            order.addLine(coffee, 1);
+            order.addLine(cake, 2);
+            order.setTotalAmount(16.0);
+            entityManager.persist(order);
+        }
+        entityManager.flush();
+
+        AtomicInteger statements = new AtomicInteger();
+        AtomicInteger fetchSize = new AtomicInteger();
+        OrderHistoryRepository repository = new OrderHistoryRepository(
+                countingStatements(statements, fetchSize), transactionManager);
+        List<OrderHistoryRow> rows = new ArrayList<>();
+
+        repository.forEachByUserId(user.getId(), rows::add);
+
+        assertThat(rows).hasSize(10);
+        assertThat(rows.get(0).cafeName()).isEqualTo("CafeTest");
+        assertThat(rows.get(0).totalAmount()).isEqualTo(16.0);
+        assertThat(rows.get(0).itemNames()).containsExactly("Coffee", "Cake x2");
+        assertThat(statements.get()).isEqualTo(1);
+        assertThat(fetchSize.get()).isPositive();
+    }
+
+    /**
+     * Runs on the test transaction's connection so that the uncommitted rows are visible.
+     */
+    private DataSource countingStatements(AtomicInteger counter, AtomicInteger fetchSize) {
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        Connection counting = (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("prepareStatement") || method.getName().equals("createStatement")) {
+                        counter.incrementAndGet();
+                    }
+                    if (method.getName().equals("close")) {
+                        return null;
+                    }
+                    Object result = method.invoke(connection, args);
+                    if (result instanceof PreparedStatement statement) {
+                        return recordingFetchSize(statement, fetchSize);
+                    }
+                    return result;
+                });
+        return new SingleConnectionDataSource(counting, true);
+    }
+
+    private PreparedStatement recordingFetchSize(PreparedStatement statement, AtomicInteger fetchSize) {
+        return (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("setFetchSize")) {
+                        fetchSize.set((Integer) args[0]);
+                    }
+                    return method.invoke(statement, args);
+                });
+    }
+}
@@ -0,0 +1,198 @@
+package com.example.cafe;
+
+import com.example.cafe.dto.OrderableItem;
+import com.example.cafe.model.Cafe;
+import com.example.cafe.model.MenuItem;
+import com.example.cafe.model.Order;
+import com.example.cafe.repository.OrderRepository;
+import com.example.cafe.service.CafeService;
+import com.example.cafe.service.MenuCatalog;
+import com.example.cafe.service.MenuItemService;
+import com.example.cafe.service.OrderRejectedException;
+import com.example.cafe.service.OrderRejectedException.Reason;
+import com.example.cafe.service.OrderService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowableOfType;
+import static org.mockito.Mockito.*;
+
+public class OrderServiceTest {
+
+    @Mock
+    private OrderRepository orderRepository;
+
+    @Mock
+    private CafeService cafeService;
+
+    @Mock
+    private MenuItemService menuItemService;
+
+    @Mock
+    private MenuCatalog menuCatalog;
+
+    @InjectMocks
+    private OrderService orderService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(orderRepository.save(any(Order.class))).thenAnswer(i -> i.getArgument(0));
+        when(cafeService.getReference(anyLong())).thenAnswer(i -> {
+            Cafe cafe = new Cafe();
+            cafe.setId(i.getArgument(0));
+            return cafe;
+        });
+    }
+
+    @Test
+    void placeOrder_cafeNull_isRejected() {
+        assertThat(rejectionOf(new Order()).getReason()).isEqualTo(Reason.CAFE_REQUIRED);
+    }
+
+    @Test
+    void placeOrder_emptyItems_tellsAMissingCafeFromAnEmptyOrder() {
+        Order order = order(1L, Collections.emptyList());
+
+        when(cafeService.exists(1L)).thenReturn(false);
+        assertThat(rejectionOf(order).getReason()).isEqualTo(Reason.CAFE_NOT_FOUND);
+
+        when(cafeService.exists(1L)).thenReturn(true);
+        assertThat(rejectionOf(order).getReason()).isEqualTo(Reason.NO_ITEMS);
+    }
+
+    @Test
+    void placeOrder_itemWithoutId_isRejected() {
+        OrderRejectedException rejection = rejectionOf(order(1L, List.of(new MenuItem())));
+
+        assertThat(rejection.getReason()).isEqualTo(Reason.MENU_ITEM_NOT_FOUND);
+        assertThat(rejection.getMenuItemId()).isNull();
+    }
+
+    @Test
+    void placeOrder_menuItemNotFound_isRejectedWithItsId() {
+        when(menuItemService.findOrderable(Set.of(100L), 1L)).thenReturn(List.of());
+        when(cafeService.exists(1L)).thenReturn(true);
+        when(menuItemService.exists(100L)).thenReturn(false);
+
+        OrderRejectedException rejection = rejectionOf(order(1L, List.of(item(100L))));
+
+        assertThat(rejection.getReason()).isEqualTo(Reason.MENU_ITEM_NOT_FOUND);
+        assertThat(rejection.getMenuItemId()).isEqualTo(100L);
+    }
+
+    @Test
+    void placeOrder_menuItemOfAnotherCafe_isRejected() {
+        when(menuItemService.findOrderable(Set.of(100L), 1L)).thenReturn(List.of());
+        when(cafeService.exists(1L)).thenReturn(true);
+        when(menuItemService.exists(100L)).thenReturn(true);
+
+        assertThat(rejectionOf(order(1L, List.of(item(100L)))).getReason())
+                .isEqualTo(Reason.MENU_ITEM_FROM_OTHER_CAFE);
+    }
+
+    @Test
+    void placeOrder_cafeDeletedBeforeSave_isRejected() {
+        when(menuCatalog.addLines(any(Order.class), eq(1L), anyList())).thenAnswer(i -> {
+            Order order = i.getArgument(0);
+            order.addLine(100L, "Latte", 5.5, 1);
+            return true;
+        });
+        when(orderRepository.save(any(Order.class))).thenThrow(new DataIntegrityViolationException("fk"));
+
+        assertThat(rejectionOf(order(1L, List.of(item(100L)))).getReason()).isEqualTo(Reason.CAFE_NOT_FOUND);
+    }
+
+    @Test
+    void placeOrder_validOrder_savesPricedLines() {
+        when(menuItemService.findOrderable(Set.of(100L), 1L))
+                .thenReturn(List.of(new OrderableItem(100L, "Latte", 5.5, 1L)));
+
+        Order savedOrder = orderService.placeOrder(order(1L, List.of(item(100L))));
+
+        assertThat(savedOrder.getCafe().getId()).isEqualTo(1L);
+        assertThat(savedOrder.getLines()).singleElement().satisfies(line -> {
+            assertThat(line.getMenuItemId()).isEqualTo(100L);
+            assertThat(line.getItemName()).isEqualTo("Latte");
+            assertThat(line.getUnitPrice()).isEqualTo(5.5);
+            assertThat(line.getQuantity()).isEqualTo(1);
+            assertThat(line.getOrder()).isSameAs(savedOrder);
+        });
+        assertThat(savedOrder.getTotalAmount()).isEqualTo(5.5);
+        verify(menuCatalog).putAll(argThat(items -> items.contains(new OrderableItem(100L, "Latte", 5.5, 1L))));
+        verify(cafeService, never()).exists(any());
+        verify(cafeService, never()).getCafeById(any());
+        verify(menuItemService, never()).getById(any());
+    }
+
+    @Test
+    void placeOrder_itemsInCatalog_skipsMenuQueries() {
+        Order order = order(1L, List.of(item(100L), item(100L)));
+        when(menuCatalog.addLines(order, 1L, order.getItems())).thenAnswer(i -> {
+            order.addLine(100L, "Latte", 5.5, 2);
+            return true;
+        });
+
+        Order savedOrder = orderService.placeOrder(order);
+
+        assertThat(savedOrder.getTotalAmount()).isEqualTo(11.0);
+        verifyNoInteractions(menuItemService);
+        verify(cafeService, never()).exists(any());
+        verify(cafeService, never()).getCafeById(any());
+    }
+
+    @Test
+    void placeOrder_repeatedItem_becomesOneLineWithQuantity() {
+        when(menuItemService.findOrderable(Set.of(100L), 1L))
+                .thenReturn(List.of(new OrderableItem(100L, "Latte", 5.5, 1L)));
+
+        Order savedOrder = orderService.placeOrder(order(1L, List.of(item(100L), item(100L), item(100L))));
+
+        assertThat(savedOrder.getLines()).hasSize(1);
+        assertThat(savedOrder.getLines().get(0).getQuantity()).isEqualTo(3);
+        assertThat(savedOrder.getTotalAmount()).isEqualTo(16.5);
+        assertThat(savedOrder.getItemNames()).containsExactly("Latte x3");
+        verify(menuItemService, times(1)).findOrderable(Set.of(100L), 1L);
+    }
+
+    @Test
+    void placeOrder_clientTotal_isReplacedByTheLineTotal() {
+        when(menuItemService.findOrderable(Set.of(100L), 1L))
+                .thenReturn(List.of(new OrderableItem(100L, "Latte", 5.5, 1L)));
+        Order order = order(1L, List.of(item(100L)));
+        order.setTotalAmount(0.01);
+
+        assertThat(orderService.placeOrder(order).getTotalAmount()).isEqualTo(5.5);
+    }
+
+    private OrderRejectedException rejectionOf(Order order) {
+        OrderRejectedException rejection =
+                catchThrowableOfType(OrderRejectedException.class, () -> orderService.placeOrder(order));
+        assertThat(rejection).isNotNull();
+        return rejection;
+    }
+
+    private static Order order(Long cafeId, List<MenuItem> items) {
+        Cafe cafe = new Cafe();
+        cafe.setId(cafeId);
+        Order order = new Order();
+        order.setCafe(cafe);
+        order.setItems(items);
+        return order;
+    }
+
+    private static MenuItem item(Long id) {
+        MenuItem item = new MenuItem();
+        item.setId(id);
+        return item;
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.cafe;
+
+import com.example.cafe.dto.OrderableItem;
+import com.example.cafe.model.Cafe;
+import com.example.cafe.model.MenuItem;
+import com.example.cafe.repository.MenuItemRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@JpaSliceTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+public class OrderableItemQueryTest {
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private MenuItemRepository menuItemRepository;
+
+    private Cafe cafe;
+    private MenuItem latte;
+    private MenuItem cake;
+    private MenuItem foreign;
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        cafe = new Cafe(null, "Cafe", "Street 1", "Kyiv", null, null, null, null, null);
+        Cafe other = new Cafe(null, "Other", "Street 2", "Lviv", null, null, null, null, null);
+        entityManager.persist(cafe);
+        entityManager.persist(other);
+        latte = new MenuItem(null, "Latte", 5.5, "Coffee", cafe, null);
+        cake = new MenuItem(null, "Cake", 7.0, "Dessert", cafe, null);
+        foreign = new MenuItem(null, "Tea", 3.0, "Tea", other, null);
+        entityManager.persist(latte);
+        entityManager.persist(cake);
+        entityManager.persist(foreign);
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void findOrderable_returnsOnlyItemsOfTheCafeInOneQuery() {
+        List<OrderableItem> items = menuItemRepository.findOrderable(
+                List.of(latte.getId(), cake.getId(), foreign.getId(), 999_999L), cafe.getId());
+
+        assertThat(items).containsExactlyInAnyOrder(
+                new OrderableItem(latte.getId(), "Latte", 5.5, cafe.getId()),
+                new OrderableItem(cake.getId(), "Cake", 7.0, cafe.getId()));
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+}
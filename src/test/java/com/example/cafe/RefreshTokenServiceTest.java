@@ -0,0 +1,96 @@
+package com.example.cafe;
+
+import com.example.cafe.model.RefreshToken;
+import com.example.cafe.model.User;
+import com.example.cafe.repository.RefreshTokenRepository;
+import com.example.cafe.repository.UserRepository;
+import com.example.cafe.service.RefreshTokenService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+public class RefreshTokenServiceTest {
+
+    private RefreshTokenRepository refreshTokenRepository;
+    private UserRepository userRepository;
+    private RefreshTokenService refreshTokenService;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        refreshTokenRepository = mock(RefreshTokenRepository.class);
+        userRepository = mock(UserRepository.class);
+        refreshTokenService = new RefreshTokenService(refreshTokenRepository, userRepository);
+        ReflectionTestUtils.setField(refreshTokenService, "refreshExpirationInMs", 60_000L);
+
+        user = new User();
+        user.setId(7L);
+        user.setEnabled(true);
+        when(userRepository.getReferenceById(7L)).thenReturn(user);
+        when(refreshTokenRepository.save(any(RefreshToken.class))).thenAnswer(i -> i.getArgument(0));
+    }
+
+    @Test
+    void rotate_concurrentRefreshesWithOneToken_onlyOneGetsANewPair() throws Exception {
+        // Both refreshes read the token as active before either revokes it; the database then lets
+        // exactly one conditional update through.
+        CountDownLatch bothRead = new CountDownLatch(2);
+        AtomicBoolean active = new AtomicBoolean(true);
+        when(refreshTokenRepository.findByTokenHash(anyString())).thenAnswer(i -> {
+            bothRead.countDown();
+            bothRead.await(5, TimeUnit.SECONDS);
+            return Optional.of(activeToken());
+        });
+        when(refreshTokenRepository.revokeIfActive(1L)).thenAnswer(i -> active.compareAndSet(true, false) ? 1 : 0);
+
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<Optional<RefreshTokenService.Rotation>>> results = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                results.add(pool.submit(() -> refreshTokenService.rotate("raw")));
+            }
+            long rotated = 0;
+            for (Future<Optional<RefreshTokenService.Rotation>> result : results) {
+                if (result.get(5, TimeUnit.SECONDS).isPresent()) {
+                    rotated++;
+                }
+            }
+            assertThat(rotated).isEqualTo(1);
+        } finally {
+            pool.shutdownNow();
+        }
+        verify(refreshTokenRepository, times(1)).save(any(RefreshToken.class));
+        verify(refreshTokenRepository).revokeAllByUserId(7L);
+    }
+
+    @Test
+    void rotate_revokedToken_revokesEveryTokenOfTheUser() {
+        RefreshToken revoked = activeToken();
+        revoked.setRevoked(true);
+        when(refreshTokenRepository.findByTokenHash(anyString())).thenReturn(Optional.of(revoked));
+
+        assertThat(refreshTokenService.rotate("raw")).isEmpty();
+
+        verify(refreshTokenRepository, never()).revokeIfActive(anyLong());
+        verify(refreshTokenRepository).revokeAllByUserId(7L);
+        verify(refreshTokenRepository, never()).save(any(RefreshToken.class));
+    }
+
+    private RefreshToken activeToken() {
+        return new RefreshToken(1L, "hash", user, Instant.now().plusSeconds(60), false);
+    }
+}
@@ -0,0 +1,205 @@
+package com.example.cafe;
+
+import com.example.cafe.config.ReplicaRoutingDataSource;
+import com.example.cafe.filter.ReadYourWritesFilter;
+import jakarta.servlet.http.Cookie;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+public class ReplicaRoutingDataSourceTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private DataSource primary;
+    private DataSource replica;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        primary = database("primary");
+        replica = database("replica");
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void readOnlyTransactions_goToReplica_andWritesToPrimary() {
+        JdbcTemplate jdbc = new JdbcTemplate(routing(List.of(replica)));
+        TransactionTemplate transactions = transactions(jdbc);
+
+        assertThat(read(transactions, jdbc)).isEqualTo("replica");
+        assertThat(write(transactions, jdbc)).isEqualTo("primary");
+        assertThat(meterRegistry.counter("datasource.routing", "target", "replica-1", "reason", "read").count())
+                .isEqualTo(1);
+        assertThat(meterRegistry.counter("datasource.routing", "target", "primary", "reason", "write").count())
+                .isGreaterThanOrEqualTo(1);
+    }
+
+    @Test
+    void readsRightAfterOwnWrite_stayOnPrimary() {
+        JdbcTemplate jdbc = new JdbcTemplate(routing(List.of(replica)));
+        TransactionTemplate transactions = transactions(jdbc);
+
+        signIn("anna");
+        write(transactions, jdbc);
+        assertThat(read(transactions, jdbc)).isEqualTo("primary");
+
+        signIn("bohdan");
+        assertThat(read(transactions, jdbc)).isEqualTo("replica");
+        assertThat(meterRegistry.counter("datasource.routing", "target", "primary", "reason", "read_your_writes").count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void readsRightAfterWriteThroughAnotherInstance_stayOnPrimary() throws Exception {
+        ReadYourWritesFilter filter = new ReadYourWritesFilter(List.of("jdbc:h2:mem:replica"), Duration.ofSeconds(5));
+        MockHttpServletResponse written = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("POST", "/customer/api/orders"), written, new MockFilterChain());
+        Cookie lastWrite = written.getCookie(ReadYourWritesFilter.LAST_WRITE_COOKIE);
+        assertThat(lastWrite).isNotNull();
+        assertThat(lastWrite.getMaxAge()).isEqualTo(5);
+
+        // A second instance has never seen this client write.
+        JdbcTemplate jdbc = new JdbcTemplate(routing(List.of(replica)));
+        TransactionTemplate transactions = transactions(jdbc);
+        signIn("anna");
+
+        MockHttpServletRequest afterWrite = new MockHttpServletRequest("GET", "/customer/api/orders");
+        afterWrite.setCookies(lastWrite);
+        assertThat(readThrough(filter, afterWrite, transactions, jdbc)).isEqualTo("primary");
+
+        MockHttpServletRequest stale = new MockHttpServletRequest("GET", "/customer/api/orders");
+        stale.setCookies(new Cookie(ReadYourWritesFilter.LAST_WRITE_COOKIE,
+                String.valueOf(System.currentTimeMillis() - 60_000)));
+        assertThat(readThrough(filter, stale, transactions, jdbc)).isEqualTo("replica");
+    }
+
+    @Test
+    void failingReplica_fallsBackToPrimary_andIsSkippedAfterwards() throws SQLException {
+        DataSource broken = mock(DataSource.class);
+        when(broken.getConnection()).thenThrow(new SQLException("connection refused"));
+        JdbcTemplate jdbc = new JdbcTemplate(routing(List.of(broken, replica)));
+        TransactionTemplate transactions = transactions(jdbc);
+
+        for (int i = 0; i < 4; i++) {
+            assertThat(read(transactions, jdbc)).isEqualTo("replica");
+        }
+
+        verify(broken, times(1)).getConnection();
+        assertThat(meterRegistry.counter("datasource.replica.failures", "replica", "replica-1").count()).isEqualTo(1);
+    }
+
+    @Test
+    void noReplicaAvailable_readsFromPrimary() throws SQLException {
+        DataSource broken = mock(DataSource.class);
+        when(broken.getConnection()).thenThrow(new SQLException("connection refused"));
+        JdbcTemplate jdbc = new JdbcTemplate(routing(List.of(broken)));
+
+        assertThat(read(transactions(jdbc), jdbc)).isEqualTo("primary");
+        assertThat(meterRegistry.counter("datasource.routing", "target", "primary", "reason", "replica_unavailable").count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void readFromPrimary_keepsReadOnlyTransactionsOnPrimary() {
+        JdbcTemplate jdbc = new JdbcTemplate(routing(List.of(replica)));
+        TransactionTemplate transactions = transactions(jdbc);
+
+        assertThat(ReplicaRoutingDataSource.readFromPrimary(() -> read(transactions, jdbc))).isEqualTo("primary");
+        assertThat(read(transactions, jdbc)).isEqualTo("replica");
+        assertThat(meterRegistry.counter("datasource.routing", "target", "primary", "reason", "pinned").count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void explicitCredentials_areRoutedLikeAnyOtherConnection() throws SQLException {
+        DataSource primaryPool = mock(DataSource.class);
+        DataSource replicaPool = mock(DataSource.class);
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primaryPool, List.of(replicaPool),
+                Duration.ofSeconds(5), Duration.ofSeconds(30), 1000, meterRegistry);
+
+        routing.getConnection("report", "secret");
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        try {
+            routing.getConnection("report", "secret");
+        } finally {
+            TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        }
+
+        verify(primaryPool).getConnection("report", "secret");
+        verify(replicaPool).getConnection("report", "secret");
+    }
+
+    private DataSource routing(List<DataSource> replicas) {
+        return new LazyConnectionDataSourceProxy(new ReplicaRoutingDataSource(
+                primary, replicas, Duration.ofSeconds(5), Duration.ofSeconds(30), 1000, meterRegistry));
+    }
+
+    private static TransactionTemplate transactions(JdbcTemplate jdbc) {
+        return new TransactionTemplate(new DataSourceTransactionManager(jdbc.getDataSource()));
+    }
+
+    private static String read(TransactionTemplate transactions, JdbcTemplate jdbc) {
+        transactions.setReadOnly(true);
+        return transactions.execute(status -> jdbc.queryForObject("select name from node", String.class));
+    }
+
+    private static String write(TransactionTemplate transactions, JdbcTemplate jdbc) {
+        transactions.setReadOnly(false);
+        return transactions.execute(status -> {
+            jdbc.update("update node set writes = writes + 1");
+            return jdbc.queryForObject("select name from node", String.class);
+        });
+    }
+
+    private static String readThrough(ReadYourWritesFilter filter, MockHttpServletRequest request,
+                                      TransactionTemplate transactions, JdbcTemplate jdbc) throws Exception {
+        AtomicReference<String> node = new AtomicReference<>();
+        filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> {
+            RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+            node.set(read(transactions, jdbc));
+        });
+        return node.get();
+    }
+
+    private static void signIn(String username) {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(username, null, List.of()));
+    }
+
+    private static DataSource database(String name) {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + name + System.nanoTime() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("create table node (name varchar(16), writes int)");
+        jdbc.update("insert into node values (?, 0)", name);
+        return dataSource;
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.cafe;
+
+import com.example.cafe.model.Role;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.sql.ResultSet;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the migrations on H2 in PostgreSQL mode; the context only starts when Hibernate's schema
+ * validation accepts the result.
+ */
+@JpaSliceTest
+public class SchemaMigrationTest {
+
+    private static final String[] LOCATIONS = {"classpath:db/migration", "classpath:com/example/cafe/migration"};
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void migrations_areAppliedInOrder() {
+        assertThat(jdbcTemplate.queryForList(
+                "select \"version\" from \"flyway_schema_history\" where \"version\" is not null and \"success\" order by \"installed_rank\"",
+                String.class))
+                .containsExactly("1", "2", "3", "4");
+    }
+
+    @Test
+    void hotLookups_haveIndexes() {
+        assertThat(indexes(jdbcTemplate, "orders")).contains(
+                "idx_orders_user", "idx_orders_cafe", "idx_orders_customer_name",
+                "idx_orders_total_amount", "idx_orders_created_at");
+        assertThat(indexes(jdbcTemplate, "menu_item")).contains("idx_menu_item_cafe");
+        assertThat(indexes(jdbcTemplate, "cafe")).contains("idx_cafe_manager");
+        assertThat(indexes(jdbcTemplate, "order_line")).contains("idx_order_line_order");
+        assertThat(indexes(jdbcTemplate, "refresh_token")).contains("idx_refresh_token_user", "idx_refresh_token_expires");
+    }
+
+    @Test
+    void legacySchema_isBaselinedAndMigrated() {
+        DataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:legacy;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate legacy = new JdbcTemplate(dataSource);
+        legacy.execute("create table users (id bigint generated by default as identity primary key,"
+                + " username varchar(255) not null unique, password varchar(255) not null, enabled boolean not null)");
+        legacy.execute("create table user_roles (user_id bigint not null references users (id), role varchar(255))");
+        legacy.execute("create table cafe (id bigint generated by default as identity primary key, name varchar(255),"
+                + " address varchar(255), city varchar(255), manager_id bigint references users (id))");
+        legacy.execute("create table menu_item (id bigint generated by default as identity primary key, name varchar(255),"
+                + " price float(53), category varchar(255), cafe_id bigint references cafe (id))");
+        legacy.execute("create table orders (id bigint generated by default as identity primary key,"
+                + " customer_name varchar(255), total_amount float(53) not null,"
+                + " cafe_id bigint references cafe (id), user_id bigint references users (id))");
+        // No foreign key to menu_item, so that a line can outlive its menu item.
+        legacy.execute("create table order_items (order_id bigint not null references orders (id),"
+                + " menu_item_id bigint not null)");
+
+        legacy.update("insert into users (username, password, enabled) values ('anna', 'x', true)");
+        legacy.update("insert into user_roles (user_id, role) values (1, 'ROLE_CUSTOMER'), (1, 'ROLE_MANAGER')");
+        legacy.update("insert into cafe (name) values ('Cafe')");
+        legacy.update("insert into menu_item (name, price, cafe_id) values ('Latte', 5.5, 1)");
+        for (int i = 0; i < 60; i++) {
+            legacy.update("insert into orders (total_amount, cafe_id, user_id) values (11, 1, 1)");
+        }
+        legacy.update("insert into order_items (order_id, menu_item_id) values (60, 1), (60, 1), (59, 99)");
+
+        Flyway.configure()
+                .dataSource(dataSource)
+                .locations(LOCATIONS)
+                .baselineOnMigrate(true)
+                .baselineVersion("0")
+                .load()
+                .migrate();
+
+        assertThat(legacy.queryForObject("select role_mask from users where id = 1", Integer.class)).isEqualTo(
+                Role.toMask(Set.of("ROLE_CUSTOMER", "ROLE_MANAGER")));
+        assertThat(legacy.queryForMap("select item_name, unit_price, quantity from order_line where order_id = 60"))
+                .containsEntry("item_name", "Latte")
+                .containsEntry("quantity", 2);
+        assertThat(legacy.queryForMap("select menu_item_id, item_name, unit_price, quantity from order_line where order_id = 59"))
+                .containsEntry("menu_item_id", 99L)
+                .containsEntry("item_name", "")
+                .containsEntry("unit_price", 0.0)
+                .containsEntry("quantity", 1);
+        assertThat(legacy.queryForObject("select nextval('orders_seq')", Long.class) - 50).isGreaterThanOrEqualTo(60L);
+        assertThat(indexes(legacy, "orders")).contains("idx_orders_user");
+        assertThat(legacy.queryForObject(
+                "select count(*) from information_schema.tables where table_name in ('user_roles', 'order_items')",
+                Integer.class)).isZero();
+    }
+
+    private static Set<String> indexes(JdbcTemplate jdbcTemplate, String table) {
+        return jdbcTemplate.execute((ConnectionCallback<Set<String>>) connection -> {
+            Set<String> names = new HashSet<>();
+            try (ResultSet rs = connection.getMetaData().getIndexInfo(null, null, table, false, false)) {
+                while (rs.next()) {
+                    names.add(rs.getString("INDEX_NAME"));
+                }
+            }
+            return names;
+        });
+    }
+}
@@ -0,0 +1,187 @@
+package com.example.cafe;
+
+import com.example.cafe.config.HibernateCacheConfig;
+import com.example.cafe.controller.CustomerController;
+import com.example.cafe.model.Cafe;
+import com.example.cafe.model.MenuItem;
+import com.example.cafe.model.User;
+import com.example.cafe.repository.CafeRepository;
+import com.example.cafe.repository.MenuItemRepository;
+import com.example.cafe.repository.UserRepository;
+import com.example.cafe.service.MenuCache;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@JpaSliceTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import(HibernateCacheConfig.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class SecondLevelCacheTest {
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private CafeRepository cafeRepository;
+
+    @Autowired
+    private MenuItemRepository menuItemRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MeterBinder hibernateCacheMetrics;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private MenuCache menuCache;
+    private CustomerController customerController;
+    private Statistics statistics;
+    private User manager;
+    private Cafe cafe;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        menuCache = new MenuCache(cafeRepository, menuItemRepository, objectMapper, 1000, Duration.ofHours(1),
+                new SimpleMeterRegistry());
+        customerController = new CustomerController(cafeRepository, null, userRepository, null, objectMapper, menuCache);
+        manager = userRepository.save(new User("manager", "hash", Set.of()));
+        cafe = cafeRepository.save(new Cafe(null, "Cafe", "Street 1", "Kyiv", null, null, manager, null, null));
+        for (int i = 0; i < 3; i++) {
+            menuItemRepository.save(new MenuItem(null, "Item " + i, 10.0 + i, "Coffee", cafe, null));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        menuItemRepository.deleteAll();
+        cafeRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void repeatedMenuRequests_onlyLookUpTheVersion() throws Exception {
+        menuOf(cafe.getId());
+        statistics.clear();
+
+        assertThat(menuOf(cafe.getId())).hasSize(3);
+        // The version is read on every request, so that a change made on another instance is seen at once.
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getQueryExecutionCount()).isEqualTo(1);
+    }
+
+    @Test
+    void repeatedMenuReads_atOneVersion_issueNoSql() {
+        long version = menuVersion();
+        menuItemRepository.findByCafeId(cafe.getId(), version);
+        statistics.clear();
+
+        List<MenuItem> menu = menuItemRepository.findByCafeId(cafe.getId(), version);
+
+        assertThat(menu).extracting(MenuItem::getName).containsExactly("Item 0", "Item 1", "Item 2");
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+        assertThat(statistics.getQueryCacheHitCount()).isEqualTo(1);
+    }
+
+    @Test
+    void menuReads_atAMovedVersion_goToTheDatabase() {
+        long version = menuVersion();
+        menuItemRepository.findByCafeId(cafe.getId(), version);
+        // As another instance would: the version moves, this instance's query cache is not told.
+        cafeRepository.incrementMenuVersions(List.of(cafe.getId()));
+        long moved = menuVersion();
+        statistics.clear();
+
+        assertThat(menuItemRepository.findByCafeId(cafe.getId(), moved)).hasSize(3);
+        assertThat(moved).isGreaterThan(version);
+        assertThat(statistics.getQueryCacheHitCount()).isZero();
+        assertThat(statistics.getPrepareStatementCount()).isPositive();
+    }
+
+    @Test
+    void regionStatistics_arePublishedAsMeters() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        hibernateCacheMetrics.bindTo(registry);
+        cafeRepository.findById(cafe.getId());
+        cafeRepository.findById(cafe.getId());
+
+        assertThat(registry.get("cache.gets").tag("cache", "cafe").tag("result", "hit").functionCounter().count())
+                .isPositive();
+    }
+
+    @Test
+    void repeatedCafeLoads_issueNoSql() {
+        cafeRepository.findById(cafe.getId());
+        statistics.clear();
+
+        Cafe loaded = cafeRepository.findById(cafe.getId()).orElseThrow();
+
+        assertThat(loaded.getName()).isEqualTo("Cafe");
+        assertThat(loaded.getManager().getUsername()).isEqualTo("manager");
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+        assertThat(statistics.getSecondLevelCacheHitCount()).isPositive();
+    }
+
+    @Test
+    void repeatedCafesByManager_issueNoSql() {
+        cafeRepository.findByManager(manager);
+        statistics.clear();
+
+        assertThat(cafeRepository.findByManager(manager)).extracting(Cafe::getName).containsExactly("Cafe");
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+    }
+
+    @Test
+    void menuItemWrite_isServedOnTheNextMenuRequest() throws Exception {
+        menuOf(cafe.getId());
+
+        MenuItem cached = menuItemRepository.findById(menuItemRepository.findByCafeId(cafe.getId(), menuVersion()).get(0).getId())
+                .orElseThrow();
+        cached.setPrice(99.0);
+        menuItemRepository.save(cached);
+        menuItemRepository.save(new MenuItem(null, "Cake", 7.0, "Dessert", cafe, null));
+        menuCache.evict(cafe.getId());
+
+        List<JsonNode> menu = menuOf(cafe.getId());
+        assertThat(menu).hasSize(4);
+        assertThat(menu).filteredOn(item -> item.get("id").asLong() == cached.getId())
+                .extracting(item -> item.get("price").asDouble()).containsExactly(99.0);
+    }
+
+    private long menuVersion() {
+        return cafeRepository.findMenuVersion(cafe.getId()).orElseThrow().menuVersion();
+    }
+
+    private List<JsonNode> menuOf(Long cafeId) throws Exception {
+        ResponseEntity<byte[]> response = customerController.getMenuByCafe(cafeId,
+                new ServletWebRequest(new MockHttpServletRequest(), new MockHttpServletResponse()));
+        assertThat(response.getStatusCodeValue()).isEqualTo(200);
+        List<JsonNode> items = new ArrayList<>();
+        objectMapper.readTree(response.getBody()).forEach(items::add);
+        return items;
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.cafe;
+
+import com.example.cafe.config.SecurityConfig;
+import com.example.cafe.controller.AuthController;
+import com.example.cafe.controller.CustomerController;
+import com.example.cafe.controller.UserController;
+import com.example.cafe.dto.CafeListVersion;
+import com.example.cafe.model.Role;
+import com.example.cafe.repository.CafeRepository;
+import com.example.cafe.repository.OrderHistoryRepository;
+import com.example.cafe.repository.UserRepository;
+import com.example.cafe.security.PasswordHashingExecutor;
+import com.example.cafe.security.TokenRevocationList;
+import com.example.cafe.security.UserPrincipal;
+import com.example.cafe.security.UserSecurityVersions;
+import com.example.cafe.service.MenuCache;
+import com.example.cafe.service.OrderService;
+import com.example.cafe.service.RefreshTokenService;
+import com.example.cafe.service.UserDetailsServiceImpl;
+import com.example.cafe.service.UsernameIndex;
+import com.example.cafe.util.JwtUtil;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(controllers = {AuthController.class, UserController.class, CustomerController.class})
+@Import({SecurityConfig.class, JwtUtil.class, TokenRevocationList.class, PasswordHashingExecutor.class,
+        StatelessSecurityTest.Metrics.class})
+public class StatelessSecurityTest {
+
+    @TestConfiguration
+    static class Metrics {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @MockitoBean
+    private UserDetailsServiceImpl userDetailsService;
+
+    @MockitoBean
+    private UserSecurityVersions userSecurityVersions;
+
+    @MockitoBean
+    private RefreshTokenService refreshTokenService;
+
+    @MockitoBean
+    private UserRepository userRepository;
+
+    @MockitoBean
+    private UsernameIndex usernameIndex;
+
+    @MockitoBean
+    private CafeRepository cafeRepository;
+
+    @MockitoBean
+    private OrderService orderService;
+
+    @MockitoBean
+    private OrderHistoryRepository orderHistoryRepository;
+
+    @MockitoBean
+    private MenuCache menuCache;
+
+    private UserPrincipal customer;
+
+    @BeforeEach
+    void setUp() {
+        customer = new UserPrincipal(7L, "alice", passwordEncoder.encode("secret"), true, 0, Role.CUSTOMER.getMask());
+        when(userDetailsService.loadUserByUsername("alice")).thenReturn(customer);
+        when(userSecurityVersions.isCurrent(anyLong(), anyInt())).thenReturn(true);
+        when(refreshTokenService.issue(7L)).thenReturn("refresh");
+        when(cafeRepository.findListVersion()).thenReturn(new CafeListVersion(0L, 0L, 0L));
+    }
+
+    @Test
+    void login_doesNotCreateSession() throws Exception {
+        MvcResult pending = mockMvc.perform(post("/auth/api/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"username\":\"alice\",\"password\":\"secret\"}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        MvcResult result = mockMvc.perform(asyncDispatch(pending))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        assertThat(result.getRequest().getSession(false)).isNull();
+    }
+
+    @Test
+    void authenticatedApiCalls_doNotCreateSession() throws Exception {
+        String token = jwtUtil.generateToken(customer);
+        String tokenId = jwtUtil.verify(token).getTokenId();
+
+        MvcResult me = mockMvc.perform(get("/auth/me").header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.tokenId").value(tokenId))
+                .andReturn();
+        assertThat(me.getRequest().getSession(false)).isNull();
+
+        for (String path : List.of("/customer/cafes", "/customer/orders")) {
+            MvcResult result = mockMvc.perform(get(path).header("Authorization", "Bearer " + token))
+                    .andExpect(status().isOk())
+                    .andReturn();
+            assertThat(result.getRequest().getSession(false)).as(path).isNull();
+        }
+    }
+
+    @Test
+    void rejectedRequests_doNotCreateSession() throws Exception {
+        MvcResult anonymous = mockMvc.perform(get("/customer/orders"))
+                .andExpect(status().isUnauthorized())
+                .andReturn();
+        assertThat(anonymous.getRequest().getSession(false)).isNull();
+
+        MvcResult badLogin = mockMvc.perform(asyncDispatch(mockMvc.perform(post("/auth/api/login")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"username\":\"alice\",\"password\":\"wrong\"}"))
+                        .andReturn()))
+                .andExpect(status().isUnauthorized())
+                .andReturn();
+        assertThat(badLogin.getRequest().getSession(false)).isNull();
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.cafe;
+
+import com.example.cafe.security.TokenRevocationList;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TokenRevocationListTest {
+
+    private final TokenRevocationList revocationList = new TokenRevocationList();
+
+    @Test
+    void isRevoked_unknownToken_returnsFalse() {
+        assertThat(revocationList.isRevoked(UUID.randomUUID().toString())).isFalse();
+        assertThat(revocationList.isRevoked(null)).isFalse();
+    }
+
+    @Test
+    void revoke_liveToken_isRevoked() {
+        String tokenId = UUID.randomUUID().toString();
+
+        revocationList.revoke(tokenId, System.currentTimeMillis() + 60_000);
+
+        assertThat(revocationList.isRevoked(tokenId)).isTrue();
+    }
+
+    @Test
+    void revoke_alreadyExpiredToken_isIgnored() {
+        String tokenId = UUID.randomUUID().toString();
+
+        revocationList.revoke(tokenId, System.currentTimeMillis() - 1);
+
+        assertThat(revocationList.isRevoked(tokenId)).isFalse();
+        assertThat(revocationList.size()).isZero();
+    }
+
+    @Test
+    void prune_dropsExpiredAndKeepsLiveEntries() throws InterruptedException {
+        String shortLived = UUID.randomUUID().toString();
+        String longLived = UUID.randomUUID().toString();
+        revocationList.revoke(shortLived, System.currentTimeMillis() + 20);
+        revocationList.revoke(longLived, System.currentTimeMillis() + 60_000);
+
+        Thread.sleep(50);
+        revocationList.prune();
+
+        assertThat(revocationList.isRevoked(shortLived)).isFalse();
+        assertThat(revocationList.isRevoked(longLived)).isTrue();
+        assertThat(revocationList.size()).isEqualTo(1);
+    }
+}
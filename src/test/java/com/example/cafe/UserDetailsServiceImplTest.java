@@ -0,0 +1,83 @@
+package com.example.cafe;
+
+import com.example.cafe.model.User;
+import com.example.cafe.repository.UserRepository;
+import com.example.cafe.service.UserDetailsServiceImpl;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.*;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+public class UserDetailsServiceImplTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private ObjectProvider<MeterRegistry> meterRegistry;
+
+    @InjectMocks
+    private UserDetailsServiceImpl userDetailsService;
+
+    @BeforeEach
+    public void setup() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(userDetailsService, "maxSize", 100L);
+        ReflectionTestUtils.setField(userDetailsService, "ttl", Duration.ofMinutes(5));
+        userDetailsService.init();
+    }
+
+    private static User user(String username) {
+        User user = new User(username, "hash", Set.of("ROLE_CUSTOMER"));
+        user.setId(1L);
+        return user;
+    }
+
+    @Test
+    void loadUserByUsername_repeatedCalls_hitDatabaseOnce() {
+        when(userRepository.findByUsername("user1")).thenReturn(Optional.of(user("user1")));
+
+        UserDetails first = userDetailsService.loadUserByUsername("user1");
+        UserDetails second = userDetailsService.loadUserByUsername("user1");
+
+        assertThat(second).isSameAs(first);
+        verify(userRepository, times(1)).findByUsername("user1");
+        assertThat(userDetailsService.stats().hitCount()).isEqualTo(1);
+        assertThat(userDetailsService.stats().missCount()).isEqualTo(1);
+    }
+
+    @Test
+    void evict_forcesReload() {
+        when(userRepository.findByUsername("user1")).thenReturn(Optional.of(user("user1")));
+
+        userDetailsService.loadUserByUsername("user1");
+        userDetailsService.evict("user1");
+        userDetailsService.loadUserByUsername("user1");
+
+        verify(userRepository, times(2)).findByUsername("user1");
+    }
+
+    @Test
+    void loadUserByUsername_unknownUser_notCached() {
+        when(userRepository.findByUsername("ghost")).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> userDetailsService.loadUserByUsername("ghost"))
+                .isInstanceOf(UsernameNotFoundException.class);
+        assertThatThrownBy(() -> userDetailsService.loadUserByUsername("ghost"))
+                .isInstanceOf(UsernameNotFoundException.class);
+
+        verify(userRepository, times(2)).findByUsername("ghost");
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.cafe;
+
+import com.example.cafe.repository.UserRepository;
+import com.example.cafe.security.UserSecurityVersions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+public class UserSecurityVersionsTest {
+
+    private UserRepository userRepository;
+    private UserSecurityVersions userSecurityVersions;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        when(userRepository.findBumpedSecurityVersions()).thenReturn(List.of());
+        userSecurityVersions = new UserSecurityVersions(userRepository);
+        userSecurityVersions.load();
+    }
+
+    @Test
+    void reload_picksUpChangesMadeOnAnotherInstance() {
+        assertThat(userSecurityVersions.isCurrent(7L, 0)).isTrue();
+
+        when(userRepository.findBumpedSecurityVersions()).thenReturn(List.<Object[]>of(new Object[]{7L, 1}));
+        userSecurityVersions.reload();
+
+        assertThat(userSecurityVersions.isCurrent(7L, 0)).isFalse();
+        assertThat(userSecurityVersions.isCurrent(7L, 1)).isTrue();
+    }
+
+    @Test
+    void reload_keepsLocalRevocationsOfDeletedUsers() {
+        userSecurityVersions.revokeAll(7L);
+
+        userSecurityVersions.reload();
+
+        assertThat(userSecurityVersions.isCurrent(7L, 5)).isFalse();
+    }
+}